@@ -13,7 +13,12 @@ public class Contact {
     private LocalDateTime timestamp;
     
     public Contact(String name, String phone, String email, String category) {
-        this.id = "ID" + System.currentTimeMillis();
+        this(ContactIdGenerator.shared().nextId(), name, phone, email, category);
+    }
+    
+    // For contacts read back from a file, which already have an id
+    private Contact(String id, String name, String phone, String email, String category) {
+        this.id = id;
         this.name = name;
         this.phone = phone;
         this.email = email;
@@ -108,6 +113,18 @@ public class Contact {
         return sb.toString();
     }
     
+    /**
+     * A separate contact with the same id and fields, to edit before the
+     * change is saved
+     */
+    public Contact copy() {
+        Contact c = new Contact(id, name, phone, email, category);
+        c.notes = notes;
+        c.isPriority = isPriority;
+        c.timestamp = timestamp;
+        return c;
+    }
+    
     public String toFileString() {
         DateTimeFormatter fmt = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
         return id + "|" + name + "|" + phone + "|" + email + "|" + 
@@ -118,8 +135,7 @@ public class Contact {
         String[] parts = line.split("\\|");
         if (parts.length < 8) return null;
         
-        Contact c = new Contact(parts[1], parts[2], parts[3], parts[4]);
-        c.setId(parts[0]);
+        Contact c = new Contact(parts[0], parts[1], parts[2], parts[3], parts[4]);
         c.setNotes(parts[5]);
         c.setPriority(Boolean.parseBoolean(parts[6]));
         c.setTimestamp(LocalDateTime.parse(parts[7], DateTimeFormatter.ISO_LOCAL_DATE_TIME));
@@ -3,13 +3,19 @@ import java.io.*;
 
 public class ContactApp {
     
-    private static ArrayList<Contact> contacts = new ArrayList<>();
+    private static ContactRepository contacts = new ContactRepository();
+    // The listing the user last saw, in the current sort order; contact
+    // numbers typed at the prompts refer to it
+    private static List<Contact> shown = new ArrayList<>();
+    private static Comparator<Contact> order = null;
     private static Stack<Contact> deletedContacts = new Stack<>();
     private static Scanner scanner = new Scanner(System.in);
     private static final String FILE = "contacts.dat";
+    private static final int QUICK_RESULTS = 10;
+    private static ContactStore store = new ContactStore(FILE);
     
     public static void main(String[] args) {
-        loadContacts();
+        if (!loadContacts()) return;
         
         System.out.println("\n" + "=".repeat(65));
         System.out.println("     ADVANCED CONTACT MANAGEMENT SYSTEM");
@@ -26,6 +32,11 @@ public class ContactApp {
             scanner.nextLine();
         }
         
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.out.println("\nError saving! " + e.getMessage());
+        }
         System.out.println("\n" + "=".repeat(65));
         System.out.println("     Thanks for using! All data saved automatically.");
         System.out.println("=".repeat(65) + "\n");
@@ -40,7 +51,7 @@ public class ContactApp {
         System.out.println("  4. View Details        10. Undo Delete");
         System.out.println("  5. Update              11. Export CSV");
         System.out.println("  6. Delete              12. Statistics");
-        System.out.println("  0. Exit");
+        System.out.println("  0. Exit                13. Quick Search");
         System.out.println("-".repeat(65));
         System.out.print("Choose: ");
     }
@@ -59,6 +70,7 @@ public class ContactApp {
             case 10: undoDelete(); break;
             case 11: exportCSV(); break;
             case 12: showStats(); break;
+            case 13: quickSearch(); break;
             default: System.out.println("Invalid choice!");
         }
     }
@@ -102,8 +114,13 @@ public class ContactApp {
             c.setNotes(notes);
         }
         
+        try {
+            store.added(c);
+        } catch (IOException e) {
+            System.out.println("\nError saving! Contact not added: " + e.getMessage());
+            return;
+        }
         contacts.add(c);
-        saveContacts();
         System.out.println("\nContact added! ID: " + c.getId());
     }
     
@@ -113,12 +130,13 @@ public class ContactApp {
             return;
         }
         
+        shown = contacts.view(order);
         System.out.println("\n" + "=".repeat(80));
-        System.out.println("ALL CONTACTS (" + contacts.size() + " total)");
+        System.out.println("ALL CONTACTS (" + shown.size() + " total)");
         System.out.println("=".repeat(80));
         
-        for (int i = 0; i < contacts.size(); i++) {
-            System.out.printf("%3d. %s\n", i+1, contacts.get(i).toDisplay());
+        for (int i = 0; i < shown.size(); i++) {
+            System.out.printf("%3d. %s\n", i+1, shown.get(i).toDisplay());
         }
         System.out.println("=".repeat(80));
     }
@@ -127,12 +145,7 @@ public class ContactApp {
         System.out.print("\nSearch (name/phone/email): ");
         String query = scanner.nextLine().trim();
         
-        ArrayList<Contact> results = new ArrayList<>();
-        for (Contact c : contacts) {
-            if (c.matches(query)) {
-                results.add(c);
-            }
-        }
+        List<Contact> results = contacts.search(query);
         
         if (results.isEmpty()) {
             System.out.println("\nNo matches found!");
@@ -145,20 +158,39 @@ public class ContactApp {
         }
     }
     
+    private static void quickSearch() {
+        System.out.println("\n--- QUICK SEARCH (blank to stop) ---");
+        
+        while (true) {
+            System.out.print("Name or phone starts with: ");
+            String prefix = scanner.nextLine().trim();
+            if (prefix.isEmpty()) break;
+            
+            List<Contact> results = contacts.complete(prefix, QUICK_RESULTS);
+            if (results.isEmpty()) {
+                System.out.println("  No matches");
+                continue;
+            }
+            for (Contact c : results) {
+                System.out.println("  " + c.toDisplay());
+            }
+        }
+    }
+    
     private static void viewDetails() {
-        int idx = selectContact("View details of");
-        if (idx == -1) return;
+        Contact c = selectContact("View details of");
+        if (c == null) return;
         
         System.out.println("\n" + "=".repeat(50));
-        System.out.println(contacts.get(idx).toDetailedView());
+        System.out.println(c.toDetailedView());
         System.out.println("=".repeat(50));
     }
     
     private static void updateContact() {
-        int idx = selectContact("Update");
-        if (idx == -1) return;
+        Contact selected = selectContact("Update");
+        if (selected == null) return;
+        Contact c = selected.copy();
         
-        Contact c = contacts.get(idx);
         System.out.println("\n--- UPDATE: " + c.getName() + " ---");
         System.out.println("(Leave blank to keep current)");
         
@@ -186,21 +218,31 @@ public class ContactApp {
             c.setNotes(notes);
         }
         
-        saveContacts();
+        try {
+            store.updated(c);
+        } catch (IOException e) {
+            System.out.println("\nError saving! Contact not updated: " + e.getMessage());
+            return;
+        }
+        contacts.update(c);
         System.out.println("\nContact updated!");
     }
     
     private static void deleteContact() {
-        int idx = selectContact("Delete");
-        if (idx == -1) return;
+        Contact c = selectContact("Delete");
+        if (c == null) return;
         
-        Contact c = contacts.get(idx);
         System.out.print("Confirm delete '" + c.getName() + "'? (yes/no): ");
         
         if (scanner.nextLine().trim().equalsIgnoreCase("yes")) {
-            contacts.remove(idx);
+            try {
+                store.deleted(c);
+            } catch (IOException e) {
+                System.out.println("\nError saving! Contact not deleted: " + e.getMessage());
+                return;
+            }
+            contacts.remove(c.getId());
             deletedContacts.push(c);
-            saveContacts();
             System.out.println("\nDeleted! Use option 10 to undo.");
         } else {
             System.out.println("Cancelled.");
@@ -208,12 +250,18 @@ public class ContactApp {
     }
     
     private static void togglePriority() {
-        int idx = selectContact("Toggle priority for");
-        if (idx == -1) return;
+        Contact selected = selectContact("Toggle priority for");
+        if (selected == null) return;
         
-        Contact c = contacts.get(idx);
+        Contact c = selected.copy();
         c.setPriority(!c.isPriority());
-        saveContacts();
+        try {
+            store.updated(c);
+        } catch (IOException e) {
+            System.out.println("\nError saving! Priority not changed: " + e.getMessage());
+            return;
+        }
+        contacts.update(c);
         
         String status = c.isPriority() ? "marked as PRIORITY" : "unmarked";
         System.out.println("\n" + c.getName() + " " + status + "!");
@@ -228,7 +276,7 @@ public class ContactApp {
         
         System.out.println("\n--- " + selected.toUpperCase() + " CONTACTS ---");
         int count = 0;
-        for (Contact c : contacts) {
+        for (Contact c : contacts.all()) {
             if (c.getCategory().equals(selected)) {
                 System.out.println(c.toDisplay());
                 count++;
@@ -244,22 +292,22 @@ public class ContactApp {
         System.out.print("Choose (1-4): ");
         int choice = getChoice(1, 4);
         
+        // Only the listing order changes; stored contacts stay where they are
         switch (choice) {
             case 1:
-                contacts.sort(Comparator.comparing(Contact::getName));
+                order = Comparator.comparing(Contact::getName);
                 break;
             case 2:
-                contacts.sort(Comparator.comparing(Contact::getName).reversed());
+                order = Comparator.comparing(Contact::getName).reversed();
                 break;
             case 3:
-                contacts.sort(Comparator.comparing(Contact::getCategory));
+                order = Comparator.comparing(Contact::getCategory);
                 break;
             case 4:
-                contacts.sort(Comparator.comparing(Contact::isPriority).reversed());
+                order = Comparator.comparing(Contact::isPriority).reversed();
                 break;
         }
         
-        saveContacts();
         System.out.println("\nSorted!");
         viewAll();
     }
@@ -270,9 +318,15 @@ public class ContactApp {
             return;
         }
         
-        Contact c = deletedContacts.pop();
+        Contact c = deletedContacts.peek();
+        try {
+            store.added(c);
+        } catch (IOException e) {
+            System.out.println("\nError saving! Contact not restored: " + e.getMessage());
+            return;
+        }
+        deletedContacts.pop();
         contacts.add(c);
-        saveContacts();
         System.out.println("\nRestored: " + c.getName());
     }
     
@@ -287,7 +341,7 @@ public class ContactApp {
             PrintWriter pw = new PrintWriter(filename);
             pw.println("Name,Phone,Email,Category,Priority,Notes");
             
-            for (Contact c : contacts) {
+            for (Contact c : contacts.all()) {
                 pw.printf("\"%s\",\"%s\",\"%s\",\"%s\",%s,\"%s\"\n",
                     c.getName(), c.getPhone(), c.getEmail(), c.getCategory(),
                     c.isPriority() ? "Yes" : "No", c.getNotes());
@@ -308,7 +362,7 @@ public class ContactApp {
         Map<String, Integer> categoryCount = new HashMap<>();
         int priorityCount = 0;
         
-        for (Contact c : contacts) {
+        for (Contact c : contacts.all()) {
             categoryCount.put(c.getCategory(), 
                 categoryCount.getOrDefault(c.getCategory(), 0) + 1);
             if (c.isPriority()) {
@@ -328,34 +382,15 @@ public class ContactApp {
         System.out.println("=".repeat(50));
     }
     
-    private static void saveContacts() {
-        try {
-            PrintWriter pw = new PrintWriter(FILE);
-            for (Contact c : contacts) {
-                pw.println(c.toFileString());
-            }
-            pw.close();
-        } catch (IOException e) {
-            System.out.println("Error saving!");
-        }
-    }
-    
-    private static void loadContacts() {
-        File f = new File(FILE);
-        if (!f.exists()) return;
-        
+    // Without the saved contacts, new changes would be logged on top of
+    // a list that is missing some: stop instead
+    private static boolean loadContacts() {
         try {
-            BufferedReader br = new BufferedReader(new FileReader(f));
-            String line;
-            while ((line = br.readLine()) != null) {
-                Contact c = Contact.fromFileString(line);
-                if (c != null) {
-                    contacts.add(c);
-                }
-            }
-            br.close();
-        } catch (IOException e) {
-            System.out.println("Error loading!");
+            contacts = store.load();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error loading contacts from " + FILE + ": " + e.getMessage());
+            return false;
         }
     }
     
@@ -377,18 +412,18 @@ public class ContactApp {
         }
     }
     
-    private static int selectContact(String action) {
+    private static Contact selectContact(String action) {
         viewAll();
-        if (contacts.isEmpty()) return -1;
+        if (contacts.isEmpty()) return null;
         
         System.out.print("\n" + action + " contact number (0 to cancel): ");
         int num = getChoice();
         
-        if (num == 0) return -1;
-        if (num < 1 || num > contacts.size()) {
+        if (num == 0) return null;
+        if (num < 1 || num > shown.size()) {
             System.out.println("Invalid number!");
-            return -1;
+            return null;
         }
-        return num - 1;
+        return shown.get(num - 1);
     }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unique, time-ordered contact ids packed into a long (Snowflake layout).
+ *
+ *   41 bits  milliseconds since EPOCH_MILLIS (enough until 2094)
+ *   10 bits  node: one per process that may write at the same time
+ *   12 bits  sequence within the millisecond
+ *
+ * The millisecond and sequence together are one AtomicLong, moved forward
+ * with compare-and-set to max(now, last + 1). So ids from one generator
+ * always increase without locking. A 4097th id within a millisecond borrows
+ * the next millisecond instead of waiting, and a clock that steps back
+ * cannot repeat an id. After a restart, observe() the ids already stored
+ * so new ones still sort after them.
+ *
+ * Two processes writing the same contacts file must not share a node, or
+ * their ids could collide. leaseShared() gives each one its own by locking
+ * one byte per node of a file next to it; the operating system drops the
+ * lock when the process exits, even if it crashes.
+ */
+public class ContactIdGenerator {
+    
+    private static final long EPOCH_MILLIS = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final String PREFIX = "ID";
+    
+    private static final String NODE_PROPERTY = "contacts.node";
+    
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    
+    private static volatile ContactIdGenerator shared;
+    // Kept open for the life of the process: closing it gives up the lease
+    private static FileChannel lease;
+    
+    private final long node;
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence of the last id
+    private final AtomicLong last = new AtomicLong();
+    
+    public ContactIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be 0-" + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+    }
+    
+    /**
+     * The generator Contact uses. Its node is the one leaseShared() leased;
+     * before that, the system property contacts.node if set, otherwise 0
+     */
+    public static ContactIdGenerator shared() {
+        ContactIdGenerator generator = shared;
+        if (generator == null) {
+            synchronized (ContactIdGenerator.class) {
+                if (shared == null) {
+                    shared = new ContactIdGenerator(Math.max(0, configuredNode()));
+                }
+                generator = shared;
+            }
+        }
+        return generator;
+    }
+    
+    /**
+     * Lease shared() a node that no other process writing file holds, by
+     * locking its byte of file + ".nodes". The node is contacts.node if set
+     * (failing if another process has it), otherwise the first free one
+     * from the process id on. A process leases once, for the one contacts
+     * file it writes; call this before generating ids.
+     */
+    public static synchronized void leaseShared(String file) throws IOException {
+        if (lease != null) {
+            return;
+        }
+        int configured = configuredNode();
+        int start = configured >= 0 ? configured : (int) (ProcessHandle.current().pid() & MAX_NODE);
+        int candidates = configured >= 0 ? 1 : MAX_NODE + 1;
+        
+        FileChannel channel = FileChannel.open(Paths.get(file + ".nodes"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            for (int i = 0; i < candidates; i++) {
+                int node = (start + i) & MAX_NODE;
+                if (channel.tryLock(node, 1, false) != null) {
+                    ContactIdGenerator leased = new ContactIdGenerator(node);
+                    leased.last.set(shared().last.get());
+                    shared = leased;
+                    lease = channel;
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        throw new IOException(configured >= 0
+            ? "Node " + configured + " (" + NODE_PROPERTY + ") is in use by another process writing " + file
+            : "All " + (MAX_NODE + 1) + " nodes are in use by processes writing " + file);
+    }
+    
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long previous = last.get();
+            long slot = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, slot)) {
+                return ((slot >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                    | (node << SEQUENCE_BITS)
+                    | (slot & SEQUENCE_MASK);
+            }
+        }
+    }
+    
+    /**
+     * next() in the text form Contact stores, "ID" + the number
+     */
+    public String nextId() {
+        return PREFIX + next();
+    }
+    
+    /**
+     * Make every later id larger than id (from any node). Later ids start
+     * in the next millisecond, since within id's own, a node above ours
+     * sorts higher whatever the sequence.
+     */
+    public void observe(long id) {
+        long slot = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | SEQUENCE_MASK;
+        while (true) {
+            long previous = last.get();
+            if (previous >= slot || last.compareAndSet(previous, slot)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * observe() for a stored id; anything other than "ID" + digits (such
+     * as a de-duplicated "ID123-2") is ignored
+     */
+    public void observe(String id) {
+        if (id.length() <= PREFIX.length() || id.length() > PREFIX.length() + 19 || !id.startsWith(PREFIX)) {
+            return;
+        }
+        for (int i = PREFIX.length(); i < id.length(); i++) {
+            if (!Character.isDigit(id.charAt(i))) {
+                return;
+            }
+        }
+        try {
+            observe(Long.parseLong(id.substring(PREFIX.length())));
+        } catch (NumberFormatException e) {
+            // Above Long.MAX_VALUE: not an id this class produced
+        }
+    }
+    
+    /**
+     * Wall-clock time an id was generated at (its millisecond field)
+     */
+    public static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+    
+    public static int node(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+    }
+    
+    /**
+     * The node set by the system property contacts.node, or -1 if unset
+     */
+    private static int configuredNode() {
+        String configured = System.getProperty(NODE_PROPERTY);
+        if (configured == null) {
+            return -1;
+        }
+        try {
+            int node = Integer.parseInt(configured.trim());
+            if (node >= 0 && node <= MAX_NODE) {
+                return node;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(NODE_PROPERTY + " must be a number from 0 to "
+            + MAX_NODE + ", not \"" + configured + "\"");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+import java.util.*;
+
+/**
+ * Type-ahead lookup of contacts by the start of a name or phone number.
+ *
+ * Keys are the lower-cased name, each later word of it (so "sha" finds
+ * "Priya Sharma"), and the digits of the phone number, each followed by
+ * the contact id to keep them unique. They sit in sorted maps, one set
+ * for priority contacts and one for the rest, so a prefix is a range and
+ * the top k is the first k entries of the priority range followed by the
+ * rest: a lookup reads about k entries however many contacts there are.
+ */
+class ContactPrefixIndex {
+    
+    // Ends the key before the id, and sorts before any character
+    private static final char END = '\0';
+    
+    private final TreeMap<String, Contact> priorityNames = new TreeMap<>();
+    private final TreeMap<String, Contact> otherNames = new TreeMap<>();
+    private final TreeMap<String, Contact> priorityPhones = new TreeMap<>();
+    private final TreeMap<String, Contact> otherPhones = new TreeMap<>();
+    // What each contact was filed under, to take it out again
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    
+    void add(Contact c) {
+        Entry entry = new Entry(c);
+        entries.put(c.getId(), entry);
+        file(entry, true);
+    }
+    
+    /**
+     * Re-file a contact after its name, phone or priority changed
+     */
+    void update(Contact c) {
+        remove(c.getId());
+        add(c);
+    }
+    
+    void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            file(entry, false);
+        }
+    }
+    
+    /**
+     * Up to k contacts whose name (or a word of it) or phone starts with
+     * prefix, ignoring case; priority contacts first, then by that name or
+     * number. A prefix of digits (spaces, '-', '+' and brackets allowed)
+     * is matched against phone numbers, anything else against names.
+     */
+    List<Contact> complete(String prefix, int k) {
+        boolean phone = isPhoneNumber(prefix);
+        String key = phone ? digits(prefix) : prefix.trim().toLowerCase();
+        
+        LinkedHashSet<Contact> results = new LinkedHashSet<>();
+        if (k <= 0 || key.isEmpty()) {
+            return new ArrayList<>(results);
+        }
+        collect(phone ? priorityPhones : priorityNames, key, k, results);
+        collect(phone ? otherPhones : otherNames, key, k, results);
+        return new ArrayList<>(results);
+    }
+    
+    private static void collect(TreeMap<String, Contact> keys, String prefix, int k,
+                                LinkedHashSet<Contact> results) {
+        // Every key starting with prefix sorts between prefix and prefix + MAX_VALUE
+        for (Contact c : keys.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            if (results.size() >= k) {
+                return;
+            }
+            results.add(c);
+        }
+    }
+    
+    private void file(Entry entry, boolean add) {
+        TreeMap<String, Contact> names = entry.priority ? priorityNames : otherNames;
+        TreeMap<String, Contact> phones = entry.priority ? priorityPhones : otherPhones;
+        for (String key : entry.names) {
+            if (add) {
+                names.put(key, entry.contact);
+            } else {
+                names.remove(key);
+            }
+        }
+        if (entry.phone != null) {
+            if (add) {
+                phones.put(entry.phone, entry.contact);
+            } else {
+                phones.remove(entry.phone);
+            }
+        }
+    }
+    
+    private static String digits(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+    
+    // Digits, possibly written with spaces, '-', '+' or brackets
+    private static boolean isPhoneNumber(String text) {
+        boolean digit = false;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                digit = true;
+            } else if (ch != ' ' && ch != '-' && ch != '+' && ch != '(' && ch != ')') {
+                return false;
+            }
+        }
+        return digit;
+    }
+    
+    /**
+     * The keys one contact is filed under, as they were when it was filed
+     */
+    private static final class Entry {
+        
+        final Contact contact;
+        final boolean priority;
+        final List<String> names = new ArrayList<>();
+        final String phone;
+        
+        Entry(Contact c) {
+            this.contact = c;
+            this.priority = c.isPriority();
+            String suffix = END + c.getId();
+            
+            String name = c.getName().trim().toLowerCase();
+            if (!name.isEmpty()) {
+                names.add(name + suffix);
+            }
+            for (int i = 1; i < name.length(); i++) {
+                if (name.charAt(i - 1) == ' ' && name.charAt(i) != ' ') {
+                    names.add(name.substring(i) + suffix);
+                }
+            }
+            
+            String digits = digits(c.getPhone());
+            this.phone = digits.isEmpty() ? null : digits + suffix;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+import java.util.*;
+
+/**
+ * Contacts indexed by id, kept in the order they were added.
+ *
+ * A LinkedHashMap is both the id index and the stable order, so get,
+ * replace and remove by id are O(1) and removing never shifts other
+ * contacts. Sorted listings are views: view() sorts a copy, and the stored
+ * order is never changed. A ContactSearchIndex and a ContactPrefixIndex
+ * are kept up to date with every change for search() and complete().
+ */
+public class ContactRepository {
+    
+    private final LinkedHashMap<String, Contact> byId = new LinkedHashMap<>();
+    private final ContactSearchIndex index = new ContactSearchIndex();
+    private final ContactPrefixIndex prefixes = new ContactPrefixIndex();
+    
+    public ContactRepository() {
+    }
+    
+    public ContactRepository(Collection<Contact> contacts) {
+        for (Contact c : contacts) {
+            add(c);
+        }
+    }
+    
+    /**
+     * Add a contact at the end of the order
+     */
+    public void add(Contact c) {
+        if (byId.containsKey(c.getId())) {
+            throw new IllegalArgumentException("Duplicate contact id: " + c.getId());
+        }
+        byId.put(c.getId(), c);
+        index.add(c);
+        prefixes.add(c);
+    }
+    
+    /**
+     * The contact with this id, or null
+     */
+    public Contact get(String id) {
+        return byId.get(id);
+    }
+    
+    /**
+     * Replace the contact with the same id, keeping its position; also call
+     * it after changing a contact's fields or priority so search() and
+     * complete() see the change
+     * Returns false if there is no such contact
+     */
+    public boolean update(Contact c) {
+        if (!byId.containsKey(c.getId())) {
+            return false;
+        }
+        byId.put(c.getId(), c);
+        index.update(c);
+        prefixes.update(c);
+        return true;
+    }
+    
+    /**
+     * Remove and return the contact with this id, or null
+     */
+    public Contact remove(String id) {
+        Contact removed = byId.remove(id);
+        if (removed != null) {
+            index.remove(id);
+            prefixes.remove(id);
+        }
+        return removed;
+    }
+    
+    /**
+     * Contacts matching query as Contact.matches does, in the order added
+     */
+    public List<Contact> search(String query) {
+        return index.search(query);
+    }
+    
+    /**
+     * Up to k contacts whose name, a word of it, or phone number starts
+     * with prefix; priority contacts first
+     */
+    public List<Contact> complete(String prefix, int k) {
+        return prefixes.complete(prefix, k);
+    }
+    
+    public boolean contains(String id) {
+        return byId.containsKey(id);
+    }
+    
+    public int size() {
+        return byId.size();
+    }
+    
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+    
+    /**
+     * All contacts in the order they were added (read-only, live)
+     */
+    public Collection<Contact> all() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+    
+    /**
+     * A new list of all contacts, sorted by order (stable, so ties keep the
+     * order they were added in); null keeps the added order
+     */
+    public List<Contact> view(Comparator<Contact> order) {
+        ArrayList<Contact> list = new ArrayList<>(byId.values());
+        if (order != null) {
+            list.sort(order);
+        }
+        return list;
+    }
+}
\ No newline at end of file
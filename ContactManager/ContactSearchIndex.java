@@ -0,0 +1,372 @@
+import java.util.*;
+
+/**
+ * Trigram index for substring search over contacts.
+ *
+ * Each contact's searchable fields are lower-cased once and joined into one
+ * text, and the contact is listed under every three-character run of that
+ * text. A query of three or more characters intersects the lists of its
+ * trigrams and only checks the contacts left with contains(). Shorter
+ * queries, and ones most contacts would match anyway, scan the stored
+ * texts, which are already lower-cased.
+ *
+ * Contacts are numbered as they are indexed and each list is a sorted int
+ * array that only ever grows at the end. Removing a contact just clears its
+ * number; an update that changes the text clears the old number and lists
+ * the contact again under a new one. Cleared numbers stay in the lists and
+ * are skipped by queries until there are more of them than contacts, when
+ * everything is renumbered. So no change moves a list, however many
+ * contacts share a trigram.
+ *
+ * Results come back in the order the contacts were added: each number
+ * carries its contact's rank in that order. Numbers below the first one an
+ * update handed out follow the ranks already; the few at or above it are
+ * sorted by rank and merged in.
+ */
+class ContactSearchIndex {
+    
+    // Joins the fields, so a match cannot span two of them
+    private static final char SEPARATOR = '\n';
+    private static final int MIN_RENUMBER = 1024;
+    private static final int NONE = Integer.MAX_VALUE;
+    
+    // Open-addressed table from trigram to its list; only renumber()
+    // drops lists, since there are only so many trigrams
+    private long[] keys = new long[1024];
+    private Postings[] lists = new Postings[1024];
+    private int trigramCount;
+    private final HashMap<String, Integer> docById = new HashMap<>();
+    private Contact[] docs = new Contact[16];
+    // null for a cleared number
+    private String[] texts = new String[16];
+    private int[] ranks = new int[16];
+    private int nextDoc;
+    private int nextRank;
+    private int live;
+    // The first number an update handed out since renumbering, or NONE
+    private int firstMoved = NONE;
+    
+    void add(Contact c) {
+        index(c, text(c), nextRank++);
+    }
+    
+    /**
+     * Re-read the fields of a contact already in the index; call it after
+     * changing them
+     */
+    void update(Contact c) {
+        Integer doc = docById.get(c.getId());
+        if (doc == null) {
+            add(c);
+            return;
+        }
+        String text = text(c);
+        if (text.equals(texts[doc])) {
+            docs[doc] = c;
+            return;
+        }
+        
+        clear(doc);
+        if (firstMoved == NONE) {
+            firstMoved = nextDoc;
+        }
+        index(c, text, ranks[doc]);
+        renumberIfSparse();
+    }
+    
+    void remove(String id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        clear(doc);
+        renumberIfSparse();
+    }
+    
+    /**
+     * Contacts whose name, phone, email, category or notes contain query,
+     * ignoring case (the same test as Contact.matches), in the order added
+     */
+    List<Contact> search(String query) {
+        String q = query.toLowerCase();
+        ArrayList<Contact> results = new ArrayList<>();
+        if (q.indexOf(SEPARATOR) >= 0) {
+            return results;
+        }
+        if (q.length() < 3) {
+            return scan(q);
+        }
+        
+        HashSet<Long> queryKeys = trigrams(q);
+        Postings[] matched = new Postings[queryKeys.size()];
+        int n = 0;
+        for (Long key : queryKeys) {
+            Postings list = find(key);
+            if (list == null) {
+                return results;
+            }
+            matched[n++] = list;
+        }
+        // Start from the rarest trigram so the candidate set is small at once
+        Arrays.sort(matched, (a, b) -> Integer.compare(a.size, b.size));
+        if (matched[0].size > live / 2) {
+            // Most contacts are candidates anyway: checking them all is cheaper
+            return scan(q);
+        }
+        
+        int[] candidates = Arrays.copyOf(matched[0].docs, matched[0].size);
+        int count = candidates.length;
+        for (int i = 1; i < matched.length && count > 0; i++) {
+            count = matched[i].retain(candidates, count);
+        }
+        
+        // Skip cleared numbers; trigrams in common do not guarantee they
+        // are in the same order
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int doc = candidates[i];
+            if (texts[doc] != null && texts[doc].contains(q)) {
+                candidates[found++] = doc;
+            }
+        }
+        return inOrder(candidates, found);
+    }
+    
+    private List<Contact> scan(String q) {
+        int[] found = new int[16];
+        int count = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (texts[doc] != null && texts[doc].contains(q)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = doc;
+            }
+        }
+        return inOrder(found, count);
+    }
+    
+    /**
+     * The contacts numbered by the first count entries of found (ascending),
+     * in the order they were added
+     */
+    private List<Contact> inOrder(int[] found, int count) {
+        ArrayList<Contact> results = new ArrayList<>(count);
+        int head = 0;
+        while (head < count && found[head] < firstMoved) {
+            head++;
+        }
+        if (head == count) {
+            for (int i = 0; i < count; i++) {
+                results.add(docs[found[i]]);
+            }
+            return results;
+        }
+        
+        // Numbers from firstMoved on are out of rank order: sort them by
+        // (rank, number) and merge them with the head, which is in order
+        long[] tail = new long[count - head];
+        for (int i = head; i < count; i++) {
+            tail[i - head] = ((long) ranks[found[i]] << 32) | found[i];
+        }
+        Arrays.sort(tail);
+        int i = 0;
+        int j = 0;
+        while (i < head || j < tail.length) {
+            if (j == tail.length || (i < head && ranks[found[i]] < (int) (tail[j] >>> 32))) {
+                results.add(docs[found[i++]]);
+            } else {
+                results.add(docs[(int) tail[j++]]);
+            }
+        }
+        return results;
+    }
+    
+    private void index(Contact c, String text, int rank) {
+        if (nextDoc == docs.length) {
+            docs = Arrays.copyOf(docs, nextDoc * 2);
+            texts = Arrays.copyOf(texts, nextDoc * 2);
+            ranks = Arrays.copyOf(ranks, nextDoc * 2);
+        }
+        int doc = nextDoc++;
+        docs[doc] = c;
+        texts[doc] = text;
+        ranks[doc] = rank;
+        docById.put(c.getId(), doc);
+        live++;
+        
+        // doc is the largest number so far, so it always goes at the end
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            long key = key(text, i);
+            if (key >= 0) {
+                listFor(key).append(doc);
+            }
+        }
+    }
+    
+    /**
+     * Clear a number; the lists keep it until renumber()
+     */
+    private void clear(int doc) {
+        docs[doc] = null;
+        texts[doc] = null;
+        live--;
+    }
+    
+    private void renumberIfSparse() {
+        if (nextDoc - live > Math.max(MIN_RENUMBER, live)) {
+            renumber();
+        }
+    }
+    
+    private Postings find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); lists[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return lists[slot];
+            }
+        }
+        return null;
+    }
+    
+    private Postings listFor(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (; lists[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return lists[slot];
+            }
+        }
+        if (2 * (trigramCount + 1) > keys.length) {
+            grow();
+            return listFor(key);
+        }
+        keys[slot] = key;
+        lists[slot] = new Postings();
+        trigramCount++;
+        return lists[slot];
+    }
+    
+    private void grow() {
+        long[] oldKeys = keys;
+        Postings[] oldLists = lists;
+        keys = new long[oldKeys.length * 2];
+        lists = new Postings[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldLists[i] != null) {
+                int slot = slot(oldKeys[i], mask);
+                while (lists[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                lists[slot] = oldLists[i];
+            }
+        }
+    }
+    
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & mask;
+    }
+    
+    /**
+     * Drop the cleared numbers and number the contacts again in rank order
+     */
+    private void renumber() {
+        Contact[] oldDocs = docs;
+        String[] oldTexts = texts;
+        long[] byRank = new long[live];
+        int n = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (oldTexts[doc] != null) {
+                byRank[n++] = ((long) ranks[doc] << 32) | doc;
+            }
+        }
+        Arrays.sort(byRank);
+        
+        keys = new long[1024];
+        lists = new Postings[1024];
+        trigramCount = 0;
+        docById.clear();
+        docs = new Contact[Math.max(16, n * 2)];
+        texts = new String[docs.length];
+        ranks = new int[docs.length];
+        nextDoc = 0;
+        nextRank = 0;
+        live = 0;
+        firstMoved = NONE;
+        for (long entry : byRank) {
+            int doc = (int) entry;
+            index(oldDocs[doc], oldTexts[doc], nextRank++);
+        }
+    }
+    
+    private static String text(Contact c) {
+        return (c.getName() + SEPARATOR + c.getPhone() + SEPARATOR + c.getEmail()
+            + SEPARATOR + c.getCategory() + SEPARATOR + c.getNotes()).toLowerCase();
+    }
+    
+    private static HashSet<Long> trigrams(String text) {
+        HashSet<Long> keys = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            long key = key(text, i);
+            if (key >= 0) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * The three chars at i packed into a long, or -1 if they cross a field
+     */
+    private static long key(String text, int i) {
+        char a = text.charAt(i);
+        char b = text.charAt(i + 1);
+        char c = text.charAt(i + 2);
+        if (a == SEPARATOR || b == SEPARATOR || c == SEPARATOR) {
+            return -1;
+        }
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+    
+    /**
+     * Sorted document numbers listed under one trigram, cleared ones
+     * included
+     */
+    private static final class Postings {
+        
+        int[] docs = new int[4];
+        int size;
+        
+        void append(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+        
+        /**
+         * Keep the first count candidates (sorted) that are also in this
+         * list; returns how many are left
+         */
+        int retain(int[] candidates, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                int at = Arrays.binarySearch(docs, from, size, candidates[i]);
+                if (at >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
\ No newline at end of file
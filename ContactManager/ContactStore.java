@@ -0,0 +1,294 @@
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Saves contacts as a snapshot file plus an append-only change log.
+ *
+ * Each change appends one line to the log instead of rewriting every
+ * contact:  A|<contact> (added),  U|<contact> (updated),  D|<id> (deleted).
+ * Loading reads the snapshot and replays the log by contact id.
+ *
+ * When the log has more records than there are contacts, it is compacted:
+ * the log is set aside, a new one is started, and a background thread
+ * writes the contacts to a new snapshot and deletes the old log. If that is
+ * interrupted, the next load also replays the set-aside log, so nothing is
+ * lost. Replaying a record twice is harmless, since every record holds the
+ * whole contact.
+ *
+ * Callers save a change first and apply it to the contacts only if that
+ * succeeds, so the contacts never hold changes the files do not. A failed
+ * write stops the log, since a record cut short must stay the last line;
+ * every later change then fails too. A failed compaction loses nothing, as
+ * its records stay in the logs, and is raised by the next change or close.
+ */
+public class ContactStore {
+    
+    private static final int MIN_COMPACT_RECORDS = 1000;
+    
+    private final File snapshotFile;
+    private final File logFile;
+    private final File oldLogFile;
+    private final File tempFile;
+    
+    private ContactRepository contacts = new ContactRepository();
+    private Writer log;
+    private int logRecords;
+    private Thread compactor;
+    // Set by a failed compaction, possibly on the compactor thread
+    private volatile IOException compactionFailure;
+    
+    public ContactStore(String file) {
+        this.snapshotFile = new File(file);
+        this.logFile = new File(file + ".log");
+        this.oldLogFile = new File(file + ".log.old");
+        this.tempFile = new File(file + ".tmp");
+    }
+    
+    /**
+     * Read the snapshot and replay the logs; changes to the returned
+     * contacts must be saved through added/updated/deleted first
+     */
+    public ContactRepository load() throws IOException {
+        // Before anything is written, so this process has its own node
+        ContactIdGenerator.leaseShared(snapshotFile.getPath());
+        // Left by a compaction that did not finish; the logs still hold it all
+        Files.deleteIfExists(tempFile.toPath());
+        LinkedHashMap<String, Contact> byId = new LinkedHashMap<>();
+        readSnapshot(byId);
+        logRecords = replay(oldLogFile, byId) + replay(logFile, byId);
+        // Records are appended to both logs, so neither may end mid-line
+        dropPartialRecord(oldLogFile);
+        dropPartialRecord(logFile);
+        log = new BufferedWriter(new FileWriter(logFile, true));
+        contacts = new ContactRepository(byId.values());
+        // New ids must sort after stored ones even if the clock went back
+        for (String id : byId.keySet()) {
+            ContactIdGenerator.shared().observe(id);
+        }
+        return contacts;
+    }
+    
+    public void added(Contact c) throws IOException {
+        append("A|" + c.toFileString());
+    }
+    
+    public void updated(Contact c) throws IOException {
+        append("U|" + c.toFileString());
+    }
+    
+    public void deleted(Contact c) throws IOException {
+        append("D|" + c.getId());
+    }
+    
+    /**
+     * Wait for a running compaction and close the log
+     */
+    public void close() throws IOException {
+        waitForCompaction();
+        if (log != null) {
+            Writer closing = log;
+            log = null;
+            closing.close();
+        }
+        raiseCompactionFailure();
+    }
+    
+    private void append(String record) throws IOException {
+        raiseCompactionFailure();
+        // Compact before writing, while the contacts hold exactly the
+        // changes logged so far
+        if (logRecords >= Math.max(MIN_COMPACT_RECORDS, contacts.size())) {
+            compact();
+        }
+        if (log == null) {
+            throw new IOException(logFile + " is not open");
+        }
+        try {
+            log.write(record);
+            log.write('\n');
+            log.flush();
+            logRecords++;
+        } catch (IOException e) {
+            try {
+                log.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            log = null;
+            throw e;
+        }
+    }
+    
+    private void compact() {
+        if (log == null || (compactor != null && compactor.isAlive())) {
+            return;
+        }
+        try {
+            log.close();
+            if (oldLogFile.exists()) {
+                // An earlier compaction failed: keep its records in order
+                Files.write(oldLogFile.toPath(), Files.readAllBytes(logFile.toPath()),
+                    StandardOpenOption.APPEND);
+                Files.delete(logFile.toPath());
+            } else {
+                Files.move(logFile.toPath(), oldLogFile.toPath());
+            }
+            log = new BufferedWriter(new FileWriter(logFile, true));
+            logRecords = 0;
+        } catch (IOException e) {
+            // Every record so far is in one of the logs; keep appending to
+            // the current one, which the next load replays last
+            compactionFailure = new IOException("Cannot compact " + logFile + ": " + e.getMessage(), e);
+            reopenLog();
+            return;
+        }
+        
+        // The copy keeps the list stable; a contact edited while it is being
+        // written is also in the new log, which is replayed after the snapshot
+        List<Contact> copy = contacts.view(null);
+        compactor = new Thread(() -> writeSnapshot(copy), "contact-compactor");
+        compactor.start();
+    }
+    
+    private void reopenLog() {
+        try {
+            log = new BufferedWriter(new FileWriter(logFile, true));
+        } catch (IOException e) {
+            log = null;
+        }
+    }
+    
+    private void writeSnapshot(List<Contact> copy) {
+        try {
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(tempFile))) {
+                for (Contact c : copy) {
+                    bw.write(c.toFileString());
+                    bw.newLine();
+                }
+            }
+            Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(oldLogFile.toPath());
+        } catch (IOException e) {
+            IOException failure = new IOException("Cannot write " + snapshotFile + ": " + e.getMessage(), e);
+            try {
+                Files.deleteIfExists(tempFile.toPath());
+            } catch (IOException cleanupFailure) {
+                failure.addSuppressed(cleanupFailure);
+            }
+            compactionFailure = failure;
+        }
+    }
+    
+    /**
+     * Throw a compaction failure not reported yet
+     */
+    private void raiseCompactionFailure() throws IOException {
+        IOException failure = compactionFailure;
+        if (failure != null) {
+            compactionFailure = null;
+            throw failure;
+        }
+    }
+    
+    private void waitForCompaction() {
+        if (compactor == null) {
+            return;
+        }
+        try {
+            compactor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void readSnapshot(LinkedHashMap<String, Contact> byId) throws IOException {
+        if (!snapshotFile.exists()) return;
+        
+        BufferedReader br = new BufferedReader(new FileReader(snapshotFile));
+        String line;
+        while ((line = br.readLine()) != null) {
+            Contact c = parse(line);
+            if (c == null) continue;
+            
+            // Older files can repeat an id; the log needs them distinct, and
+            // the same order always yields the same new ids
+            String id = c.getId();
+            for (int n = 2; byId.containsKey(id); n++) {
+                id = c.getId() + "-" + n;
+            }
+            c.setId(id);
+            byId.put(id, c);
+        }
+        br.close();
+    }
+    
+    /**
+     * Cut a record left unfinished by a crash off the end of file; replay
+     * skipped it, and the next record must start on a line of its own
+     */
+    private static void dropPartialRecord(File file) throws IOException {
+        if (!file.exists()) return;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') break;
+                end--;
+            }
+            if (end < raf.length()) {
+                raf.setLength(end);
+            }
+        }
+    }
+    
+    /**
+     * Apply every record in file; returns the number of records
+     */
+    private int replay(File file, LinkedHashMap<String, Contact> byId) throws IOException {
+        if (!file.exists()) return 0;
+        
+        int records = 0;
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.length() < 2 || line.charAt(1) != '|') continue;
+            
+            String body = line.substring(2);
+            switch (line.charAt(0)) {
+                case 'A':
+                    Contact added = parse(body);
+                    if (added != null) {
+                        byId.remove(added.getId());
+                        byId.put(added.getId(), added);
+                    }
+                    break;
+                case 'U':
+                    Contact updated = parse(body);
+                    if (updated != null) {
+                        byId.put(updated.getId(), updated);
+                    }
+                    break;
+                case 'D':
+                    byId.remove(body);
+                    break;
+            }
+            records++;
+        }
+        br.close();
+        return records;
+    }
+    
+    /**
+     * A contact line, or null if it is malformed (e.g. cut short by a crash)
+     */
+    private static Contact parse(String line) {
+        try {
+            return Contact.fromFileString(line);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
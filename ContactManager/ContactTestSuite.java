@@ -0,0 +1,524 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Test suite for the contact manager
+ * Tests ids, the repository and its indexes, and saving and reloading
+ */
+public class ContactTestSuite {
+    
+    private static int totalTests = 0;
+    private static int passedTests = 0;
+    private static int failedTests = 0;
+    
+    private static final String[] QUERIES = {
+        "a", "55", "mail", "@mail.com", "ali", "rao", "kum", "xyz", "99", "note", "work"
+    };
+    
+    public static void main(String[] args) {
+        System.out.println("╔════════════════════════════════════════════════════╗");
+        System.out.println("║   Contact Manager - Test Suite Runner              ║");
+        System.out.println("╚════════════════════════════════════════════════════╝\n");
+        
+        testIdGenerator();
+        testRepository();
+        testSearchIndex();
+        testCompletion();
+        testStoreRecovery();
+        
+        printTestSummary();
+    }
+    
+    // ============ ID GENERATOR TESTS ============
+    
+    private static void testIdGenerator() {
+        System.out.println("\n── Testing Id Generator ──");
+        
+        // Each thread's ids increase, and no two threads get the same one
+        ContactIdGenerator generator = new ContactIdGenerator(3);
+        int threads = 4;
+        int perThread = 50_000;
+        long[][] ids = new long[threads][perThread];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] mine = ids[t];
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    mine[i] = generator.next();
+                }
+            });
+            workers[t].start();
+        }
+        boolean increasing = true;
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            try {
+                workers[t].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < perThread; i++) {
+                increasing &= i == 0 || ids[t][i] > ids[t][i - 1];
+                all[t * perThread + i] = ids[t][i];
+            }
+        }
+        Arrays.sort(all);
+        boolean distinct = true;
+        for (int i = 1; i < all.length; i++) {
+            distinct &= all[i] != all[i - 1];
+        }
+        test("Ids increase within a thread", increasing, true);
+        test("Ids distinct across threads", distinct, true);
+        test("Id carries its node", ContactIdGenerator.node(all[0]) == 3, true);
+        
+        // Observing an id an hour ahead pins the clock there: 4096 ids fill
+        // the next millisecond, and the one after borrows the millisecond after
+        ContactIdGenerator ahead = new ContactIdGenerator(0);
+        long future = ahead.next() + (3_600_000L << 22);
+        ahead.observe(future);
+        long millis = ContactIdGenerator.timestampMillis(future);
+        long first = ahead.next();
+        long last = first;
+        for (int i = 1; i < 4096; i++) {
+            last = ahead.next();
+        }
+        long borrowed = ahead.next();
+        test("Ids after observe start in the next millisecond",
+            ContactIdGenerator.timestampMillis(first) == millis + 1, true);
+        test("4096 ids share a millisecond",
+            ContactIdGenerator.timestampMillis(last) == millis + 1, true);
+        test("Id 4097 borrows the next millisecond",
+            ContactIdGenerator.timestampMillis(borrowed) == millis + 2, true);
+        
+        // After a restart, new ids sort after stored ones from any node
+        ContactIdGenerator before = new ContactIdGenerator(ContactIdGenerator.MAX_NODE);
+        long stored = before.next() + (60_000L << 22);
+        ContactIdGenerator restarted = new ContactIdGenerator(0);
+        restarted.observe("ID" + stored);
+        test("Ids after restart sort after stored ids", restarted.next() > stored, true);
+        restarted.observe("ID" + stored + "-2");
+        restarted.observe("not an id");
+        test("Observe ignores other ids", restarted.next() > stored, true);
+        
+        // Other processes writing the same file get other nodes
+        try {
+            Path dir = Files.createTempDirectory("contacts");
+            ContactIdGenerator.leaseShared(dir.resolve("contacts.dat").toString());
+            int node = ContactIdGenerator.node(ContactIdGenerator.shared().next());
+            
+            String taken = runContactApp(dir, "0\n", "-Dcontacts.node=" + node);
+            test("Lease refuses a node in use", taken.contains("is in use"), true);
+            String malformed = runContactApp(dir, "0\n", "-Dcontacts.node=abc");
+            test("Lease reports malformed contacts.node",
+                malformed.contains("contacts.node must be a number"), true);
+            
+            runContactApp(dir, "1\nChild\n5550001111\nchild@x.com\n1\n\n\n0\n");
+            String record = Files.readAllLines(dir.resolve("contacts.dat.log")).get(0);
+            long childId = Long.parseLong(record.substring(4, record.indexOf('|', 2)));
+            test("Lease gives another process another node",
+                ContactIdGenerator.node(childId) != node, true);
+            deleteDirectory(dir);
+        } catch (IOException | RuntimeException e) {
+            test("Lease child processes", false, true);
+        }
+    }
+    
+    /**
+     * Run ContactApp in its own JVM in dir, feeding it input; returns its output
+     */
+    private static String runContactApp(Path dir, String input, String... options) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(options));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("ContactApp");
+        Process process = new ProcessBuilder(command)
+            .directory(dir.toFile())
+            .redirectErrorStream(true)
+            .start();
+        try (OutputStream in = process.getOutputStream()) {
+            in.write(input.getBytes());
+        }
+        String output = new String(process.getInputStream().readAllBytes());
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return output;
+    }
+    
+    // ============ REPOSITORY TESTS ============
+    
+    private static void testRepository() {
+        System.out.println("\n── Testing Repository ──");
+        ContactRepository contacts = new ContactRepository();
+        Contact sam = new Contact("Sam", "5550000001", "sam@x.com", "Work");
+        Contact ann = new Contact("Ann", "5550000002", "ann@x.com", "Family");
+        Contact bob = new Contact("Bob", "5550000003", "bob@x.com", "Work");
+        Contact sam2 = new Contact("Sam", "5550000004", "sam2@x.com", "Friends");
+        contacts.add(sam);
+        contacts.add(ann);
+        contacts.add(bob);
+        contacts.add(sam2);
+        
+        test("Repository get by id", contacts.get(ann.getId()) == ann, true);
+        test("Repository get unknown id", contacts.get("ID0") == null, true);
+        test("Repository contains", contacts.contains(bob.getId()), true);
+        testException("Repository rejects duplicate id", () -> contacts.add(ann.copy()),
+            IllegalArgumentException.class);
+        
+        Contact renamed = ann.copy();
+        renamed.setName("Anna");
+        test("Repository update", contacts.update(renamed), true);
+        test("Repository update replaces contact", contacts.get(ann.getId()) == renamed, true);
+        test("Repository update keeps position",
+            contacts.view(null).equals(List.of(sam, renamed, bob, sam2)), true);
+        test("Repository update unknown id",
+            contacts.update(new Contact("Nobody", "", "", "Other")), false);
+        
+        test("Repository remove", contacts.remove(bob.getId()) == bob, true);
+        test("Repository remove twice", contacts.remove(bob.getId()) == null, true);
+        test("Repository size after remove", contacts.size() == 3, true);
+        test("Repository order after remove",
+            new ArrayList<>(contacts.all()).equals(List.of(sam, renamed, sam2)), true);
+        
+        // Sorting is stable and leaves the stored order alone
+        List<Contact> byName = contacts.view(Comparator.comparing(Contact::getName));
+        test("Repository view sorted", byName.equals(List.of(renamed, sam, sam2)), true);
+        List<Contact> byNameReversed = contacts.view(
+            Comparator.comparing(Contact::getName).reversed());
+        test("Repository view keeps ties in added order",
+            byNameReversed.equals(List.of(sam, sam2, renamed)), true);
+        byName.clear();
+        test("Repository view is a copy",
+            new ArrayList<>(contacts.all()).equals(List.of(sam, renamed, sam2)), true);
+        testException("Repository all() is read-only", () -> contacts.all().clear(),
+            UnsupportedOperationException.class);
+    }
+    
+    // ============ SEARCH INDEX TESTS ============
+    
+    private static void testSearchIndex() {
+        System.out.println("\n── Testing Search Index ──");
+        Random random = new Random(42);
+        ContactRepository contacts = new ContactRepository();
+        List<String> ids = new ArrayList<>();
+        
+        for (int i = 0; i < 3000; i++) {
+            ids.add(add(contacts, random, i));
+        }
+        testSearch("Search after adds", contacts);
+        
+        // Updates and removals until the cleared numbers outnumber the
+        // contacts, which renumbers the index
+        for (int i = 0; i < 9000; i++) {
+            int op = random.nextInt(10);
+            if (op < 4) {
+                Contact c = contacts.get(ids.get(random.nextInt(ids.size()))).copy();
+                c.setName(name(random));
+                c.setNotes(random.nextBoolean() ? "note " + i : "");
+                contacts.update(c);
+            } else if (op < 7) {
+                contacts.remove(ids.remove(random.nextInt(ids.size())));
+            } else {
+                ids.add(add(contacts, random, 3000 + i));
+            }
+        }
+        testSearch("Search after churn", contacts);
+        
+        // Unchanged text, priority only, and a contact removed and added back
+        Contact same = contacts.get(ids.get(0)).copy();
+        same.setPriority(!same.isPriority());
+        contacts.update(same);
+        Contact back = contacts.remove(ids.get(1));
+        contacts.add(back);
+        testSearch("Search after re-add", contacts);
+        test("Search finds re-added contact last",
+            last(contacts.search(back.getName())) == back, true);
+        
+        for (int i = 0; i < 1500; i++) {
+            ids.add(add(contacts, random, 10000 + i));
+        }
+        testSearch("Search after growing again", contacts);
+    }
+    
+    private static String add(ContactRepository contacts, Random random, int i) {
+        Contact c = new Contact(name(random), String.format("55%08d", random.nextInt(100_000_000)),
+            "user" + i + "@mail.com", random.nextBoolean() ? "Work" : "Family");
+        contacts.add(c);
+        return c.getId();
+    }
+    
+    private static String name(Random random) {
+        String[] first = {"Alice", "Ravi", "Kumar", "Asha", "Rao", "Meena", "Zara"};
+        String[] last = {"Rao", "Ali", "Kumaran", "Shah", "Iyer", "Xyzzy"};
+        return first[random.nextInt(first.length)] + " " + last[random.nextInt(last.length)];
+    }
+    
+    // search() must give what checking every contact with matches() gives,
+    // in the same order
+    private static void testSearch(String description, ContactRepository contacts) {
+        boolean same = true;
+        for (String query : QUERIES) {
+            List<Contact> expected = new ArrayList<>();
+            for (Contact c : contacts.all()) {
+                if (c.matches(query)) {
+                    expected.add(c);
+                }
+            }
+            same &= expected.equals(contacts.search(query));
+        }
+        test(description, same, true);
+    }
+    
+    private static Contact last(List<Contact> list) {
+        return list.isEmpty() ? null : list.get(list.size() - 1);
+    }
+    
+    // ============ COMPLETION TESTS ============
+    
+    private static void testCompletion() {
+        System.out.println("\n── Testing Completion ──");
+        ContactRepository contacts = new ContactRepository();
+        Contact priya = new Contact("Priya Sharma", "5551234567", "priya@x.com", "Work");
+        Contact pratik = new Contact("Pratik Rao", "5559876543", "pratik@x.com", "Work");
+        Contact shah = new Contact("Shah Rukh", "5551200000", "shah@x.com", "Friends");
+        Contact samSam = new Contact("Sam Sam", "4440000000", "sam@x.com", "Other");
+        pratik.setPriority(true);
+        contacts.add(priya);
+        contacts.add(pratik);
+        contacts.add(shah);
+        contacts.add(samSam);
+        
+        test("Complete puts priority first",
+            contacts.complete("pr", 10).equals(List.of(pratik, priya)), true);
+        test("Complete ignores case", contacts.complete("PRI", 10).equals(List.of(priya)), true);
+        test("Complete matches later name words",
+            contacts.complete("sha", 10).equals(List.of(shah, priya)), true);
+        test("Complete lists a contact once", contacts.complete("sam", 10).equals(List.of(samSam)), true);
+        test("Complete phone prefix", contacts.complete("55512", 10).equals(List.of(shah, priya)), true);
+        test("Complete phone prefix with separators",
+            contacts.complete("(555) 12-3", 10).equals(List.of(priya)), true);
+        test("Complete phone prefix with plus", contacts.complete("+444", 10).equals(List.of(samSam)), true);
+        test("Complete nothing for empty prefix", contacts.complete("  ", 10).isEmpty(), true);
+        test("Complete nothing for k = 0", contacts.complete("p", 0).isEmpty(), true);
+        
+        // Top k: priority range first, then the rest in name order
+        ContactRepository many = new ContactRepository();
+        List<Contact> named = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            Contact c = new Contact("Kim " + i, "", "", "Work");
+            many.add(c);
+            named.add(0, c);
+        }
+        Contact starred = new Contact("Kim Zed", "", "", "Work");
+        starred.setPriority(true);
+        many.add(starred);
+        test("Complete cuts off at k",
+            many.complete("kim", 4).equals(List.of(starred, named.get(0), named.get(1), named.get(2))), true);
+        
+        // Re-filed after a rename, a priority change and a removal
+        Contact renamed = priya.copy();
+        renamed.setName("Priyanka Iyer");
+        renamed.setPhone("5550001111");
+        contacts.update(renamed);
+        test("Complete after rename finds new name",
+            contacts.complete("iye", 10).equals(List.of(renamed)), true);
+        test("Complete after rename drops old name", contacts.complete("sharma", 10).isEmpty(), true);
+        test("Complete after rename drops old phone", contacts.complete("5551234", 10).isEmpty(), true);
+        
+        Contact starredShah = shah.copy();
+        starredShah.setPriority(true);
+        contacts.update(starredShah);
+        test("Complete after priority toggle",
+            contacts.complete("555", 10).equals(List.of(starredShah, pratik, renamed)), true);
+        
+        contacts.remove(pratik.getId());
+        test("Complete after remove", contacts.complete("pra", 10).isEmpty(), true);
+        test("Complete after remove keeps others",
+            contacts.complete("p", 10).equals(List.of(renamed)), true);
+    }
+    
+    // ============ STORE TESTS ============
+    
+    private static void testStoreRecovery() {
+        System.out.println("\n── Testing Store Recovery ──");
+        
+        try {
+            Path dir = Files.createTempDirectory("contacts");
+            String file = dir.resolve("contacts.dat").toString();
+            File oldLog = new File(file + ".log.old");
+            Random random = new Random(7);
+            List<String> ids = new ArrayList<>();
+            
+            // Enough changes to compact the log in the background
+            ContactStore store = new ContactStore(file);
+            ContactRepository contacts = store.load();
+            change(store, contacts, ids, random, 2500);
+            store.close();
+            test("Store reload after compaction", sameContacts(contacts, new ContactStore(file).load()), true);
+            test("Store compaction removed old log", oldLog.exists(), false);
+            
+            // A compaction that set the log aside but never wrote the snapshot
+            Files.move(Paths.get(file + ".log"), oldLog.toPath());
+            store = new ContactStore(file);
+            contacts = store.load();
+            test("Store replays set-aside log", sameContacts(contacts, new ContactStore(file).load()), true);
+            change(store, contacts, ids, random, 300);
+            store.close();
+            test("Store reload with set-aside log", sameContacts(contacts, new ContactStore(file).load()), true);
+            
+            // The next compaction appends to the set-aside log first
+            store = new ContactStore(file);
+            contacts = store.load();
+            change(store, contacts, ids, random, 2500);
+            store.close();
+            test("Store reload after recovery compaction", sameContacts(contacts, new ContactStore(file).load()), true);
+            test("Store recovery removed old log", oldLog.exists(), false);
+            
+            // A record cut short by a crash is skipped, and the next one
+            // does not run into it
+            Files.write(Paths.get(file + ".log"), "U|ID1|cut sh".getBytes(), StandardOpenOption.APPEND);
+            store = new ContactStore(file);
+            ContactRepository reloaded = store.load();
+            test("Store skips torn record", sameContacts(contacts, reloaded), true);
+            change(store, reloaded, ids, random, 5);
+            store.close();
+            test("Store appends after torn record", sameContacts(reloaded, new ContactStore(file).load()), true);
+            
+            // A snapshot that cannot be written is reported on close, and
+            // the logs still hold every change
+            Path failing = Files.createTempDirectory("contacts");
+            String failingFile = failing.resolve("contacts.dat").toString();
+            store = new ContactStore(failingFile);
+            contacts = store.load();
+            ids.clear();
+            Path inTheWay = Files.createDirectories(Paths.get(failingFile, "in-the-way"));
+            change(store, contacts, ids, random, 1001);
+            boolean reported = false;
+            try {
+                store.close();
+            } catch (IOException e) {
+                reported = true;
+            }
+            test("Store reports failed compaction", reported, true);
+            test("Store removes unfinished snapshot", new File(failingFile + ".tmp").exists(), false);
+            Files.delete(inTheWay);
+            Files.delete(inTheWay.getParent());
+            test("Store reload after failed compaction",
+                sameContacts(contacts, new ContactStore(failingFile).load()), true);
+            deleteDirectory(failing);
+            
+            Files.write(Paths.get(file + ".tmp"), "stale".getBytes());
+            new ContactStore(file).load();
+            test("Store removes stale snapshot on load", new File(file + ".tmp").exists(), false);
+            
+            deleteDirectory(dir);
+        } catch (IOException e) {
+            test("Store temp files", false, true);
+        }
+    }
+    
+    // Random adds, updates and deletes, saved before they are applied as
+    // ContactApp does
+    private static void change(ContactStore store, ContactRepository contacts, List<String> ids,
+                               Random random, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int op = random.nextInt(10);
+            if (op < 5 || ids.isEmpty()) {
+                Contact c = new Contact(name(random), "555" + random.nextInt(10_000_000),
+                    "c" + i + "@mail.com", "Work");
+                store.added(c);
+                contacts.add(c);
+                ids.add(c.getId());
+            } else if (op < 8) {
+                Contact c = contacts.get(ids.get(random.nextInt(ids.size()))).copy();
+                c.setNotes("note " + i);
+                c.setPriority(random.nextBoolean());
+                store.updated(c);
+                contacts.update(c);
+            } else {
+                String id = ids.remove(random.nextInt(ids.size()));
+                store.deleted(contacts.get(id));
+                contacts.remove(id);
+            }
+        }
+    }
+    
+    private static void deleteDirectory(Path dir) throws IOException {
+        for (File f : dir.toFile().listFiles()) {
+            f.delete();
+        }
+        Files.delete(dir);
+    }
+    
+    private static boolean sameContacts(ContactRepository a, ContactRepository b) {
+        List<String> left = new ArrayList<>();
+        for (Contact c : a.all()) {
+            left.add(c.toFileString());
+        }
+        List<String> right = new ArrayList<>();
+        for (Contact c : b.all()) {
+            right.add(c.toFileString());
+        }
+        return left.equals(right);
+    }
+    
+    // ============ HELPER METHODS ============
+    
+    private static void test(String description, boolean actual, boolean expected) {
+        totalTests++;
+        boolean passed = actual == expected;
+        
+        if (passed) {
+            passedTests++;
+            System.out.printf("✓ PASS: %s%n", description);
+        } else {
+            failedTests++;
+            System.out.printf("✗ FAIL: %s (Expected: %b, Got: %b)%n",
+                description, expected, actual);
+        }
+    }
+    
+    private static void testException(String description, Runnable code,
+                                      Class<? extends Exception> expectedException) {
+        totalTests++;
+        try {
+            code.run();
+            failedTests++;
+            System.out.printf("✗ FAIL: %s (No exception thrown)%n", description);
+        } catch (Exception e) {
+            if (expectedException.isInstance(e)) {
+                passedTests++;
+                System.out.printf("✓ PASS: %s (Caught %s)%n",
+                    description, e.getClass().getSimpleName());
+            } else {
+                failedTests++;
+                System.out.printf("✗ FAIL: %s (Expected %s, Got %s)%n",
+                    description, expectedException.getSimpleName(),
+                    e.getClass().getSimpleName());
+            }
+        }
+    }
+    
+    private static void printTestSummary() {
+        System.out.println("\n╔════════════════════════════════════════════════════╗");
+        System.out.println("║              TEST SUITE SUMMARY                    ║");
+        System.out.println("╠════════════════════════════════════════════════════╣");
+        System.out.printf("║ Total Tests:  %-33d║%n", totalTests);
+        System.out.printf("║ Passed:       %-33d║%n", passedTests);
+        System.out.printf("║ Failed:       %-33d║%n", failedTests);
+        System.out.printf("║ Success Rate: %.2f%%%30s║%n",
+            (passedTests * 100.0 / totalTests), "");
+        System.out.println("╚════════════════════════════════════════════════════╝");
+        
+        if (failedTests == 0) {
+            System.out.println("\n🎉 All tests passed! Contact manager is working perfectly!");
+        } else {
+            System.out.println("\n⚠️  Some tests failed. Please review the failures above.");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+/**
+ * CalculatorEngine that memoizes its expensive operations
+ * power, logarithm, naturalLog, sine, cosine and tangent results are kept in
+ * a bounded ResultCache keyed on the raw bits of the operands, so repeated
+ * inputs skip the math library. Failed calls are not cached and throw
+ * exactly as in CalculatorEngine.
+ */
+public class CachedCalculatorEngine extends CalculatorEngine {
+    
+    private static final byte POWER = 1;
+    private static final byte LOGARITHM = 2;
+    private static final byte NATURAL_LOG = 3;
+    private static final byte SINE = 4;
+    private static final byte COSINE = 5;
+    private static final byte TANGENT = 6;
+    
+    private final ResultCache cache;
+    
+    public CachedCalculatorEngine(int capacity) {
+        this(capacity, false);
+    }
+    
+    public CachedCalculatorEngine(int capacity, boolean preallocatedErrors) {
+        this(capacity, preallocatedErrors, TrigMode.RADIANS);
+    }
+    
+    public CachedCalculatorEngine(int capacity, boolean preallocatedErrors, TrigMode trigMode) {
+        super(preallocatedErrors, trigMode);
+        this.cache = new ResultCache(capacity);
+    }
+    
+    @Override
+    public double power(double base, double exponent) {
+        double cached = cache.get(POWER, base, exponent);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double result = super.power(base, exponent);
+        cache.put(POWER, base, exponent, result);
+        return result;
+    }
+    
+    @Override
+    public double logarithm(double number) {
+        double cached = cache.get(LOGARITHM, number, 0);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double result = super.logarithm(number);
+        cache.put(LOGARITHM, number, 0, result);
+        return result;
+    }
+    
+    @Override
+    public double naturalLog(double number) {
+        double cached = cache.get(NATURAL_LOG, number, 0);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double result = super.naturalLog(number);
+        cache.put(NATURAL_LOG, number, 0, result);
+        return result;
+    }
+    
+    @Override
+    public double sine(double degrees) {
+        double cached = cache.get(SINE, degrees, 0);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double result = super.sine(degrees);
+        cache.put(SINE, degrees, 0, result);
+        return result;
+    }
+    
+    @Override
+    public double cosine(double degrees) {
+        double cached = cache.get(COSINE, degrees, 0);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double result = super.cosine(degrees);
+        cache.put(COSINE, degrees, 0, result);
+        return result;
+    }
+    
+    @Override
+    public double tangent(double degrees) {
+        double cached = cache.get(TANGENT, degrees, 0);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        double result = super.tangent(degrees);
+        cache.put(TANGENT, degrees, 0, result);
+        return result;
+    }
+    
+    // Cache statistics
+    public long getHitCount() {
+        return cache.hits();
+    }
+    
+    public long getMissCount() {
+        return cache.misses();
+    }
+    
+    public long getEvictionCount() {
+        return cache.evictions();
+    }
+    
+    public double getHitRate() {
+        long hits = cache.hits();
+        long total = hits + cache.misses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+    
+    public int getCacheSize() {
+        return cache.size();
+    }
+    
+    public int getCacheCapacity() {
+        return cache.capacity();
+    }
+    
+    /**
+     * Drop all cached results and reset the counters
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+}
\ No newline at end of file
@@ -1,3 +1,8 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 /**
@@ -7,13 +12,21 @@ import java.util.Scanner;
 public class CalculatorApp {
     private final Scanner scanner;
     private final CalculatorEngine engine;
+    private final PrecisionEngine precisionEngine;
     private final HistoryManager historyManager;
     private boolean running;
+    private static final String HISTORY_FILE = "history.log";
+    private static final int DEFAULT_PORT = 7070;
+    // Largest n the app computes n! for: 35,660 digits, already cached by
+    // PrecisionEngine, where larger n can take minutes and gigabytes
+    private static final int MAX_FACTORIAL = PrecisionEngine.FACTORIAL_CACHE_LIMIT;
 
     public CalculatorApp() {
         this.scanner = new Scanner(System.in);
-        this.engine = new CalculatorEngine();
-        this.historyManager = new HistoryManager();
+        // Exact sin(180) = 0 etc. is worth a few ns per interactive call
+        this.engine = new CalculatorEngine(false, TrigMode.EXACT_DEGREES);
+        this.precisionEngine = new PrecisionEngine();
+        this.historyManager = HistoryManager.open(Path.of(HISTORY_FILE), 100, 1);
         this.running = true;
     }
 
@@ -33,6 +46,7 @@ public class CalculatorApp {
         }
         
         scanner.close();
+        historyManager.close();
         System.out.println("\nThank you for using Enhanced Calculator!");
     }
 
@@ -53,7 +67,8 @@ public class CalculatorApp {
         System.out.println("│ 4. Statistical Operations           │");
         System.out.println("│ 5. View Calculation History         │");
         System.out.println("│ 6. Clear History                    │");
-        System.out.println("│ 7. Exit                             │");
+        System.out.println("│ 7. Evaluate Expression              │");
+        System.out.println("│ 8. Exit                             │");
         System.out.println("└─────────────────────────────────────┘");
         System.out.print("Enter your choice: ");
     }
@@ -74,8 +89,9 @@ public class CalculatorApp {
             case 4 -> handleStatisticalOperations();
             case 5 -> displayHistory();
             case 6 -> clearHistory();
-            case 7 -> exitApplication();
-            default -> throw new InvalidInputException("Invalid choice. Please select 1-7");
+            case 7 -> handleExpression();
+            case 8 -> exitApplication();
+            default -> throw new InvalidInputException("Invalid choice. Please select 1-8");
         }
     }
 
@@ -190,7 +206,11 @@ public class CalculatorApp {
                 operation = "ln(" + num + ")";
             }
             case 6 -> {
-                int num = (int) getNumber("Enter non-negative integer: ");
+                int num = getFactorialArgument("Enter non-negative integer: ");
+                if (num > 20) {
+                    handleLargeFactorial(num);
+                    return;
+                }
                 result = engine.factorial(num);
                 operation = num + "!";
             }
@@ -203,31 +223,86 @@ public class CalculatorApp {
 
     private void handleStatisticalOperations() throws InvalidInputException {
         System.out.println("\n── Statistical Operations ──");
-        System.out.print("Enter count of numbers: ");
+        System.out.print("Enter count of numbers (0 to load a binary file): ");
         int count = getUserChoice();
         
-        if (count <= 0) {
+        if (count < 0) {
             throw new InvalidInputException("Count must be positive");
         }
         
+        if (count == 0) {
+            System.out.print("Enter path to file of little-endian doubles: ");
+            analyzeBinaryFile(Path.of(scanner.nextLine().trim()));
+            return;
+        }
+        
         double[] numbers = new double[count];
         for (int i = 0; i < count; i++) {
             numbers[i] = getNumber("Enter number " + (i + 1) + ": ");
         }
-        
         StatisticalCalculator stats = new StatisticalCalculator(numbers);
         
+        printStatistics(stats.summary(), stats.median(), stats.mode());
+        historyManager.addEntry("Statistical Analysis", stats.mean());
+    }
+
+    /**
+     * Moments straight from the mapped file; only median and mode load the
+     * values onto the heap, and are skipped for files too large for that
+     */
+    private void analyzeBinaryFile(Path file) {
+        MappedDataset dataset = MappedDataset.open(file);
+        StreamingStatistics summary = dataset.summary(true);
+        
+        double median = Double.NaN;
+        double mode = Double.NaN;
+        if (dataset.size() <= MappedDataset.ORDER_STATISTICS_LIMIT) {
+            StatisticalCalculator stats = dataset.toCalculator(true);
+            median = stats.median();
+            mode = stats.mode();
+        } else {
+            System.out.printf("%nNote: %d values is over %d; median and mode are skipped%n",
+                dataset.size(), MappedDataset.ORDER_STATISTICS_LIMIT);
+        }
+        
+        printStatistics(summary, median, mode);
+        historyManager.addEntry("Statistical Analysis", summary.mean());
+    }
+
+    /**
+     * A NaN median means median and mode were not computed
+     */
+    private void printStatistics(StreamingStatistics summary, double median, double mode) {
         System.out.println("\n── Statistical Results ──");
-        System.out.printf("Mean:     %.4f%n", stats.mean());
-        System.out.printf("Median:   %.4f%n", stats.median());
-        System.out.printf("Mode:     %.4f%n", stats.mode());
-        System.out.printf("Std Dev:  %.4f%n", stats.standardDeviation());
-        System.out.printf("Variance: %.4f%n", stats.variance());
-        System.out.printf("Sum:      %.4f%n", stats.sum());
-        System.out.printf("Min:      %.4f%n", stats.min());
-        System.out.printf("Max:      %.4f%n", stats.max());
+        System.out.printf("Mean:     %.4f%n", summary.mean());
+        if (Double.isNaN(median)) {
+            System.out.println("Median:   (skipped)");
+            System.out.println("Mode:     (skipped)");
+        } else {
+            System.out.printf("Median:   %.4f%n", median);
+            System.out.printf("Mode:     %.4f%n", mode);
+        }
+        System.out.printf("Std Dev:  %.4f%n", summary.standardDeviation());
+        System.out.printf("Variance: %.4f%n", summary.variance());
+        System.out.printf("Sum:      %.4f%n", summary.sum());
+        System.out.printf("Min:      %.4f%n", summary.min());
+        System.out.printf("Max:      %.4f%n", summary.max());
+    }
+
+    private void handleExpression() throws InvalidInputException {
+        System.out.println("\n── Expression Evaluator ──");
+        System.out.println("Operators: + - * / % ^   Functions: sqrt abs sin cos tan log ln fact");
+        System.out.print("Enter expression: ");
         
-        historyManager.addEntry("Statistical Analysis", stats.mean());
+        Expression expression = Expression.compile(scanner.nextLine().trim(), engine);
+        double[] bindings = new double[expression.getVariables().size()];
+        for (int i = 0; i < bindings.length; i++) {
+            bindings[i] = getNumber("Enter " + expression.getVariables().get(i) + ": ");
+        }
+        
+        double result = expression.evaluate(bindings);
+        displayResult(expression.getSource(), result);
+        historyManager.addEntry(expression.getSource(), result);
     }
 
     private double getNumber(String prompt) throws InvalidInputException {
@@ -239,6 +314,37 @@ public class CalculatorApp {
         }
     }
 
+    private void handleLargeFactorial(int n) {
+        BigInteger exact = precisionEngine.factorial(n);
+        String digits = exact.toString();
+        System.out.println("\n╭─────────────────────────────────╮");
+        System.out.printf("│ %d! = %s%n", n, digits);
+        System.out.printf("│ (%d digits)%n", digits.length());
+        System.out.println("╰─────────────────────────────────╯");
+        
+        double approximate = exact.doubleValue();
+        if (Double.isInfinite(approximate)) {
+            System.out.println("(Beyond double range; not added to history)");
+            return;
+        }
+        historyManager.addEntry(n + "!", approximate);
+    }
+
+    /**
+     * A whole number from 0 to MAX_FACTORIAL (negatives are left to the
+     * engine, which reports them)
+     */
+    private int getFactorialArgument(String prompt) throws InvalidInputException {
+        double value = getNumber(prompt);
+        if (value != Math.rint(value)) {
+            throw new InvalidInputException("Factorial needs a whole number");
+        }
+        if (value > MAX_FACTORIAL) {
+            throw new InvalidInputException("Factorial is limited to n <= " + MAX_FACTORIAL);
+        }
+        return (int) Math.max(value, Integer.MIN_VALUE);
+    }
+
     private void displayResult(String operation, double result) {
         System.out.println("\n╭─────────────────────────────────╮");
         System.out.printf("│ %s = %.6f%n", operation, result);
@@ -259,7 +365,72 @@ public class CalculatorApp {
         running = false;
     }
 
+    /**
+     * Read operations from a file ("-" for stdin) and print one result per line
+     * A throughput summary goes to stderr so stdout holds only results
+     */
+    private static void runBatch(String source) {
+        ScriptRunner runner = new ScriptRunner();
+        long start = System.nanoTime();
+        try (InputStream in = source.equals("-") ? System.in : Files.newInputStream(Path.of(source))) {
+            runner.run(in, System.out);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Processed %d operations (%d errors) in %.3f s (%.2f M ops/s)%n",
+            runner.getOperationCount(), runner.getErrorCount(), seconds,
+            runner.getOperationCount() / seconds / 1e6);
+    }
+
+    /**
+     * Serve CalculatorProtocol on 127.0.0.1 until the process is stopped;
+     * all connections share one history. It is kept in memory: history.log
+     * forces every entry to disk, which would cap a service that records
+     * every request at the disk's sync rate
+     */
+    private static void runServer(int port) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        CalculatorServer server;
+        try {
+            server = new CalculatorServer(port, threads, new HistoryManager());
+        } catch (CalculatorException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Calculator service listening on 127.0.0.1:" + server.getPort()
+            + " with " + threads + " threads (Ctrl+C to stop)");
+    }
+
+    /**
+     * The port given to --serve, or -1 if it is not a number from 0 to 65535
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            return port >= 0 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args.length > 1 ? args[1] : "-");
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int port = args.length > 1 ? parsePort(args[1]) : DEFAULT_PORT;
+            if (port < 0) {
+                System.err.println("Error: port must be a number from 0 to 65535");
+                System.err.println("Usage: java CalculatorApp --serve [port]");
+                return;
+            }
+            runServer(port);
+            return;
+        }
         CalculatorApp app = new CalculatorApp();
         app.start();
     }
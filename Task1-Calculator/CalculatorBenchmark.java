@@ -0,0 +1,278 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Micro-benchmarks for the calculator, statistics and history hot paths
+ *
+ * Usage: java CalculatorBenchmark [maxSize] [nameFilter]
+ *   maxSize     largest statistics dataset, a power of ten (default 1000000;
+ *               10^8 needs about 2 GB of heap: -Xmx3g)
+ *   nameFilter  only run benchmarks whose name contains this text
+ *
+ * Each benchmark runs warmup iterations, then measurement iterations of
+ * about ITERATION_MILLIS each, and reports:
+ *   ops/s       throughput over all measurement iterations
+ *   p50..p99.9  latency percentiles in ns/op; fast operations are timed in
+ *               batches sized to about BATCH_NANOS, so each sample is the
+ *               mean latency of one batch
+ *   B/op, MB/s  bytes allocated by the benchmark thread (ThreadMXBean)
+ *   gc          collections and collection time during measurement
+ *
+ * A JMH module would need a build system this project does not have; this
+ * runner follows the same warmup/measure scheme with no dependencies. All
+ * calls go through one Operation call site, so nanosecond-scale results
+ * include a few ns of call overhead.
+ */
+public class CalculatorBenchmark {
+    
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final long ITERATION_MILLIS = 200;
+    private static final long BATCH_NANOS = 20_000;
+    private static final int MAX_BATCH = 1 << 20;
+    private static final int MAX_SAMPLES =
+        (int) (2 * MEASUREMENT_ITERATIONS * ITERATION_MILLIS * 1_000_000 / BATCH_NANOS);
+    private static final int HISTORY_CAPACITY = 100;
+    
+    /**
+     * One benchmarked call; i varies per call so inputs are not constant
+     */
+    private interface Operation {
+        double run(int i);
+    }
+    
+    // Results are folded into this field so the JIT cannot drop the work
+    private static double sink;
+    
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String filter = args.length > 1 ? args[1] : "";
+        
+        System.out.printf("%-34s %14s %10s %10s %10s %10s %10s %10s %12s%n",
+            "Benchmark", "ops/s", "p50", "p90", "p99", "p99.9", "B/op", "MB/s", "gc");
+        
+        benchmarkEngine(filter);
+        benchmarkStatistics(filter, maxSize);
+        benchmarkHistory(filter);
+    }
+    
+    // ============ ENGINE ============
+    
+    private static void benchmarkEngine(String filter) {
+        double[] xs = randomValues(1024, 1, 1000, 1);
+        double[] ys = randomValues(1024, 1, 1000, 2);
+        int mask = xs.length - 1;
+        
+        CalculatorEngine engine = new CalculatorEngine();
+        CalculatorEngine exact = new CalculatorEngine(false, TrigMode.EXACT_DEGREES);
+        CalculatorEngine table = new CalculatorEngine(false, TrigMode.TABLE);
+        CalculatorEngine fastErrors = new CalculatorEngine(true);
+        CachedCalculatorEngine cached = new CachedCalculatorEngine(256);
+        PrecisionEngine precise = new PrecisionEngine();
+        Expression expression = Expression.compile("x^2 + 3*x - sin(x) / y", engine);
+        double[] bindings = new double[2];
+        double[] out = new double[xs.length];
+        byte[] status = new byte[xs.length];
+        
+        run(filter, "engine.add", i -> engine.add(xs[i & mask], ys[i & mask]));
+        run(filter, "engine.divide", i -> engine.divide(xs[i & mask], ys[i & mask]));
+        run(filter, "engine.power", i -> engine.power(xs[i & mask] / 100, ys[i & mask] / 100));
+        run(filter, "engine.sine.radians", i -> engine.sine(xs[i & mask]));
+        run(filter, "engine.sine.exact", i -> exact.sine(xs[i & mask]));
+        run(filter, "engine.sine.table", i -> table.sine(xs[i & mask]));
+        run(filter, "engine.factorial", i -> engine.factorial(i % 21));
+        run(filter, "engine.divideByZero", i -> {
+            try {
+                return engine.divide(xs[i & mask], 0);
+            } catch (DivisionByZeroException e) {
+                return 0;
+            }
+        });
+        run(filter, "engine.divideByZero.prealloc", i -> {
+            try {
+                return fastErrors.divide(xs[i & mask], 0);
+            } catch (DivisionByZeroException e) {
+                return 0;
+            }
+        });
+        run(filter, "engine.tryDivide", i -> engine.tryDivide(xs[i & mask], ys[i & mask]).orElse(0));
+        run(filter, "engine.batchMultiply[1024]", i -> engine.multiply(xs, ys, out, status));
+        run(filter, "cached.power[64 keys]", i -> cached.power(xs[i & 63] / 100, 2.5));
+        run(filter, "precision.factorial(1000)", i -> precise.factorial(1000).bitLength());
+        run(filter, "expression.evaluate", i -> {
+            bindings[0] = xs[i & mask];
+            bindings[1] = ys[i & mask];
+            return expression.evaluate(bindings);
+        });
+    }
+    
+    // ============ STATISTICS ============
+    
+    /**
+     * Every call works on a fresh calculator (no memoized results), so the
+     * figures include the validation pass over the data
+     */
+    private static void benchmarkStatistics(String filter, int maxSize) {
+        for (int size = 10; size > 0 && size <= maxSize; size *= 10) {
+            // Values on a 0.25 grid so mode() sees repeated values
+            double[] data = randomValues(size, 0, size / 4.0 + 1, size);
+            for (int i = 0; i < size; i++) {
+                data[i] = Math.rint(data[i] * 4) / 4;
+            }
+            String suffix = "[" + size + "]";
+            
+            run(filter, "stats.mean" + suffix, i -> StatisticalCalculator.wrap(data, false).mean());
+            run(filter, "stats.variance" + suffix,
+                i -> StatisticalCalculator.wrap(data, false).variance());
+            // Order statistics reorder a wrapped array, so each run gets a copy
+            run(filter, "stats.median" + suffix,
+                i -> StatisticalCalculator.wrap(data.clone(), false).median());
+            run(filter, "stats.mode" + suffix,
+                i -> StatisticalCalculator.wrap(data.clone(), false).mode());
+            if (size > ParallelStatistics.CHUNK_SIZE) {
+                run(filter, "stats.median.parallel" + suffix,
+                    i -> StatisticalCalculator.wrap(data, true).median());
+            }
+        }
+    }
+    
+    // ============ HISTORY ============
+    
+    /**
+     * The ring is filled first, so every measured addEntry also evicts
+     */
+    private static void benchmarkHistory(String filter) {
+        String[] operations = {"10.0 ÷ 2.0", "3.0 + 4.0", "sin(30.0°)", "2.0 ^ 8.0", "5!"};
+        
+        HistoryManager history = new HistoryManager(HISTORY_CAPACITY);
+        HistoryManager indexed = new HistoryManager(HISTORY_CAPACITY, true);
+        for (int i = 0; i < HISTORY_CAPACITY; i++) {
+            history.addEntry(operations[i % operations.length], i);
+            indexed.addEntry(operations[i % operations.length], i);
+        }
+        
+        run(filter, "history.addEntry", i -> {
+            history.addEntry(operations[i % operations.length], i);
+            return i;
+        });
+        run(filter, "history.addEntry.indexed", i -> {
+            indexed.addEntry(operations[i % operations.length], i);
+            return i;
+        });
+    }
+    
+    // ============ HARNESS ============
+    
+    private static void run(String filter, String name, Operation operation) {
+        if (!filter.isEmpty() && !name.contains(filter)) {
+            return;
+        }
+        
+        // Warmup also sizes the batch: it doubles while a batch finishes in
+        // under BATCH_NANOS, so it settles on the compiled code's speed
+        int batch = 1;
+        int invocation = 0;
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+            long end = System.nanoTime() + ITERATION_MILLIS * 1_000_000;
+            long now;
+            do {
+                long start = System.nanoTime();
+                invocation = runBatch(operation, invocation, batch);
+                now = System.nanoTime();
+                if (now - start < BATCH_NANOS && batch < MAX_BATCH) {
+                    batch *= 2;
+                }
+            } while (now < end);
+        }
+        
+        // Preallocated so recording samples does not count as allocation
+        long[] samples = new long[MAX_SAMPLES];
+        int sampleCount = 0;
+        
+        long operations = 0;
+        long elapsed = 0;
+        long gcCount = -gcCount();
+        long gcMillis = -gcMillis();
+        long threadId = Thread.currentThread().getId();
+        long allocated = -THREADS.getThreadAllocatedBytes(threadId);
+        
+        for (int iteration = 0; iteration < MEASUREMENT_ITERATIONS; iteration++) {
+            long iterationEnd = System.nanoTime() + ITERATION_MILLIS * 1_000_000;
+            long now;
+            do {
+                long start = System.nanoTime();
+                invocation = runBatch(operation, invocation, batch);
+                now = System.nanoTime();
+                
+                if (sampleCount < samples.length) {
+                    samples[sampleCount++] = (now - start) / batch;
+                }
+                operations += batch;
+                elapsed += now - start;
+            } while (now < iterationEnd);
+        }
+        
+        allocated += THREADS.getThreadAllocatedBytes(threadId);
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+        
+        Arrays.sort(samples, 0, sampleCount);
+        double seconds = elapsed / 1e9;
+        System.out.printf(Locale.ROOT, "%-34s %14.0f %10d %10d %10d %10d %10.1f %10.1f %7d/%3dms%n",
+            name,
+            operations / seconds,
+            percentile(samples, sampleCount, 50),
+            percentile(samples, sampleCount, 90),
+            percentile(samples, sampleCount, 99),
+            percentile(samples, sampleCount, 99.9),
+            (double) allocated / operations,
+            allocated / seconds / (1024 * 1024),
+            gcCount,
+            gcMillis);
+    }
+    
+    private static int runBatch(Operation operation, int invocation, int batch) {
+        double accumulator = 0;
+        for (int i = 0; i < batch; i++) {
+            accumulator += operation.run(invocation++ & Integer.MAX_VALUE);
+        }
+        sink += accumulator;
+        return invocation;
+    }
+    
+    private static long percentile(long[] sorted, int count, double p) {
+        int index = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+    
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+    
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+    
+    private static double[] randomValues(int count, double min, double max, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = min + random.nextDouble() * (max - min);
+        }
+        return values;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,522 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Client for CalculatorServer, plus a load generator (main)
+ *
+ * The scalar methods (add, sine, ...) send one request and wait for its
+ * result; errors come back as the same CalculatorException subclasses the
+ * engine throws. For throughput, send() queues requests without waiting and
+ * receive() returns their results in order: queued requests go out in one
+ * write when the client has to wait for a response (or on flush()).
+ *
+ * A client is one connection and is not thread-safe; use one per thread.
+ *
+ * Load generator usage: java CalculatorClient [connections] [depth] [seconds] [port]
+ *   connections  client threads, one connection each (default 4)
+ *   depth        requests kept in flight per connection (default 64)
+ *   seconds      measured duration, after WARMUP_SECONDS (default 10)
+ *   port         server on 127.0.0.1; without it an in-process server with
+ *                a shared history is started
+ */
+public class CalculatorClient implements AutoCloseable {
+    
+    private static final int WARMUP_SECONDS = 2;
+    
+    private final SocketChannel channel;
+    
+    // out is in write mode, in in read mode
+    private ByteBuffer out = ByteBuffer.allocateDirect(CalculatorProtocol.BUFFER_SIZE);
+    private ByteBuffer in = ByteBuffer.allocateDirect(CalculatorProtocol.BUFFER_SIZE).limit(0);
+    private int nextId;
+    private int pending;
+    
+    public CalculatorClient(String host, int port) {
+        try {
+            channel = SocketChannel.open(new InetSocketAddress(host, port));
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot connect to calculator service at " + host + ":" + port
+                + ": " + e.getMessage(), e);
+        }
+    }
+    
+    // ============ SCALAR OPERATIONS ============
+    
+    public double add(double a, double b) {
+        return call(CalculatorProtocol.OP_ADD, a, b);
+    }
+    
+    public double subtract(double a, double b) {
+        return call(CalculatorProtocol.OP_SUBTRACT, a, b);
+    }
+    
+    public double multiply(double a, double b) {
+        return call(CalculatorProtocol.OP_MULTIPLY, a, b);
+    }
+    
+    public double divide(double a, double b) {
+        return call(CalculatorProtocol.OP_DIVIDE, a, b);
+    }
+    
+    public double power(double base, double exponent) {
+        return call(CalculatorProtocol.OP_POWER, base, exponent);
+    }
+    
+    public double modulo(double a, double b) {
+        return call(CalculatorProtocol.OP_MODULO, a, b);
+    }
+    
+    public double squareRoot(double number) {
+        return call(CalculatorProtocol.OP_SQUARE_ROOT, number, 0);
+    }
+    
+    public double absolute(double number) {
+        return call(CalculatorProtocol.OP_ABSOLUTE, number, 0);
+    }
+    
+    public double sine(double degrees) {
+        return call(CalculatorProtocol.OP_SINE, degrees, 0);
+    }
+    
+    public double cosine(double degrees) {
+        return call(CalculatorProtocol.OP_COSINE, degrees, 0);
+    }
+    
+    public double tangent(double degrees) {
+        return call(CalculatorProtocol.OP_TANGENT, degrees, 0);
+    }
+    
+    public double logarithm(double number) {
+        return call(CalculatorProtocol.OP_LOGARITHM, number, 0);
+    }
+    
+    public double naturalLog(double number) {
+        return call(CalculatorProtocol.OP_NATURAL_LOG, number, 0);
+    }
+    
+    public double factorial(int n) {
+        return call(CalculatorProtocol.OP_FACTORIAL, n, 0);
+    }
+    
+    // ============ PIPELINING ============
+    
+    /**
+     * Queue a scalar request (CalculatorProtocol.OP_ADD .. OP_FACTORIAL);
+     * b is ignored by single-operand operations
+     * Returns the request id
+     */
+    public int send(byte opcode, double a, double b) {
+        int operands = CalculatorProtocol.operandBytes(opcode);
+        if (operands < 0) {
+            throw new InvalidInputException("Not a scalar operation: " + opcode);
+        }
+        reserve(Integer.BYTES + CalculatorProtocol.HEADER_SIZE + operands);
+        int id = nextId++;
+        out.putInt(CalculatorProtocol.HEADER_SIZE + operands).putInt(id).put(opcode);
+        if (opcode == CalculatorProtocol.OP_FACTORIAL) {
+            out.putInt((int) a);
+        } else {
+            out.putDouble(a);
+            if (operands == 2 * Double.BYTES) {
+                out.putDouble(b);
+            }
+        }
+        pending++;
+        return id;
+    }
+    
+    /**
+     * Result of the oldest request still pending
+     */
+    public double receive() {
+        int end = openResponse();
+        double result = in.getDouble();
+        in.position(end);
+        return result;
+    }
+    
+    /**
+     * Send queued requests now
+     */
+    public void flush() {
+        out.flip();
+        try {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot send to calculator service: " + e.getMessage(), e);
+        } finally {
+            out.compact();
+        }
+    }
+    
+    public int getPendingCount() {
+        return pending;
+    }
+    
+    // ============ BATCH, STATISTICS, HISTORY ============
+    
+    /**
+     * Element-wise opcode (OP_ADD .. OP_POWER) over a and b in one request,
+     * with the same contract as CalculatorEngine's array operations
+     * Returns the number of elements that failed
+     */
+    public int batch(byte opcode, double[] a, double[] b, double[] results, byte[] status) {
+        if (opcode < CalculatorProtocol.OP_ADD || opcode > CalculatorProtocol.OP_POWER) {
+            throw new InvalidInputException("Not a batch operation: " + opcode);
+        }
+        int n = a.length;
+        if (b.length != n || results.length < n || status.length < n) {
+            throw new InvalidInputException("Batch arrays must have matching lengths (expected " + n + ")");
+        }
+        beginRequest(CalculatorProtocol.HEADER_SIZE + 1 + Integer.BYTES + 2L * n * Double.BYTES,
+            CalculatorProtocol.OP_BATCH);
+        out.put(opcode).putInt(n);
+        out.asDoubleBuffer().put(a).put(b);
+        out.position(out.position() + 2 * n * Double.BYTES);
+        
+        int end = openResponse();
+        in.getInt();
+        in.get(status, 0, n);
+        in.asDoubleBuffer().get(results, 0, n);
+        in.position(end);
+        
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            if (status[i] != CalculatorEngine.STATUS_OK) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+    
+    /**
+     * Mean, median, mode, standard deviation, min and max of data
+     */
+    public double[] statistics(double... data) {
+        int n = data.length;
+        beginRequest(CalculatorProtocol.HEADER_SIZE + Integer.BYTES + (long) n * Double.BYTES,
+            CalculatorProtocol.OP_STATISTICS);
+        out.putInt(n);
+        out.asDoubleBuffer().put(data);
+        out.position(out.position() + n * Double.BYTES);
+        
+        int end = openResponse();
+        in.getInt();
+        double[] summary = new double[6];
+        in.asDoubleBuffer().get(summary);
+        in.position(end);
+        return summary;
+    }
+    
+    /**
+     * The server's latest history entries, one per line
+     */
+    public String history(int limit) {
+        beginRequest(CalculatorProtocol.HEADER_SIZE + Integer.BYTES, CalculatorProtocol.OP_HISTORY);
+        out.putInt(limit);
+        
+        int end = openResponse();
+        byte[] text = new byte[in.getInt()];
+        in.get(text);
+        in.position(end);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+    
+    // ============ FRAMING ============
+    
+    private double call(byte opcode, double a, double b) {
+        checkIdle();
+        send(opcode, a, b);
+        return receive();
+    }
+    
+    private void beginRequest(long length, byte opcode) {
+        if (length > CalculatorProtocol.MAX_FRAME) {
+            throw new InvalidInputException("Request too large: " + length + " bytes");
+        }
+        checkIdle();
+        reserve(Integer.BYTES + (int) length);
+        out.putInt((int) length).putInt(nextId++).put(opcode);
+        pending++;
+    }
+    
+    /**
+     * Blocking calls would read a pipelined response instead of their own
+     */
+    private void checkIdle() {
+        if (pending != 0) {
+            throw new InvalidOperationException("Receive the pipelined responses first");
+        }
+    }
+    
+    /**
+     * Read the next response header; returns the end of its frame
+     */
+    private int openResponse() {
+        if (pending == 0) {
+            throw new InvalidOperationException("No request is pending");
+        }
+        fill(Integer.BYTES);
+        int length = in.getInt(in.position());
+        if (length < CalculatorProtocol.HEADER_SIZE || length > CalculatorProtocol.MAX_FRAME) {
+            throw new CalculatorException("Malformed response from calculator service");
+        }
+        fill(Integer.BYTES + length);
+        int end = in.position() + Integer.BYTES + length;
+        in.position(in.position() + Integer.BYTES);
+        in.getInt();
+        byte status = in.get();
+        pending--;
+        
+        if (status != CalculatorEngine.STATUS_OK) {
+            String message = CalculatorProtocol.getString(in);
+            in.position(end);
+            throw CalculatorProtocol.exceptionFor(status, message);
+        }
+        return end;
+    }
+    
+    /**
+     * Read until at least bytes are buffered, sending queued requests first
+     */
+    private void fill(int bytes) {
+        if (in.remaining() >= bytes) {
+            return;
+        }
+        if (out.position() > 0) {
+            flush();
+        }
+        in.compact();
+        if (in.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+            in.flip();
+            larger.put(in);
+            in = larger;
+        }
+        try {
+            while (in.position() < bytes) {
+                if (channel.read(in) < 0) {
+                    throw new CalculatorException("Calculator service closed the connection");
+                }
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot read from calculator service: " + e.getMessage(), e);
+        } finally {
+            in.flip();
+        }
+    }
+    
+    /**
+     * Make room for bytes more output, sending what is queued if needed
+     */
+    private void reserve(int bytes) {
+        if (out.remaining() < bytes) {
+            flush();
+        }
+        if (out.remaining() < bytes) {
+            // Nothing is queued after the flush
+            out = ByteBuffer.allocateDirect(bytes);
+        }
+    }
+    
+    // ============ LOAD GENERATOR ============
+    
+    public static void main(String[] args) throws InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        if (connections <= 0 || depth <= 0 || seconds <= 0) {
+            System.err.println("Connections, depth and seconds must be positive");
+            return;
+        }
+        
+        CalculatorServer server = null;
+        int port;
+        if (args.length > 3) {
+            port = Integer.parseInt(args[3]);
+        } else {
+            int threads = Math.min(connections, Runtime.getRuntime().availableProcessors());
+            server = new CalculatorServer(0, threads, new HistoryManager());
+            port = server.getPort();
+        }
+        
+        long warmupEnd = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+        LoadWorker[] workers = new LoadWorker[connections];
+        for (int i = 0; i < connections; i++) {
+            workers[i] = new LoadWorker(port, depth, warmupEnd, end);
+            workers[i].start();
+        }
+        
+        LatencyHistogram latencies = new LatencyHistogram();
+        long operations = 0;
+        long errors = 0;
+        for (LoadWorker worker : workers) {
+            worker.join();
+            latencies.add(worker.latencies);
+            operations += worker.latencies.count();
+            errors += worker.errors;
+        }
+        if (server != null) {
+            server.close();
+        }
+        
+        System.out.printf(Locale.ROOT, "%d connections, %d in flight each, %d s on 127.0.0.1:%d%n",
+            connections, depth, seconds, port);
+        System.out.printf(Locale.ROOT, "Throughput: %.0f ops/s (%d errors)%n",
+            (double) operations / seconds, errors);
+        System.out.printf(Locale.ROOT, "Latency µs: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+            latencies.percentile(50) / 1e3,
+            latencies.percentile(90) / 1e3,
+            latencies.percentile(99) / 1e3,
+            latencies.percentile(99.9) / 1e3,
+            latencies.max() / 1e3);
+    }
+    
+    /**
+     * One connection keeping depth requests in flight; latency runs from
+     * queueing a request to reading its response
+     */
+    private static final class LoadWorker extends Thread {
+        
+        private static final byte[] MIX = {
+            CalculatorProtocol.OP_ADD, CalculatorProtocol.OP_MULTIPLY,
+            CalculatorProtocol.OP_DIVIDE, CalculatorProtocol.OP_POWER, CalculatorProtocol.OP_SINE
+        };
+        
+        final int port;
+        final int depth;
+        final long warmupEnd;
+        final long end;
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long errors;
+        
+        LoadWorker(int port, int depth, long warmupEnd, long end) {
+            this.port = port;
+            this.depth = depth;
+            this.warmupEnd = warmupEnd;
+            this.end = end;
+        }
+        
+        @Override
+        public void run() {
+            // Responses arrive in order, so send times live in a ring
+            int mask = Integer.highestOneBit(Math.max(1, depth - 1)) * 2 - 1;
+            long[] sentAt = new long[mask + 1];
+            
+            try (CalculatorClient client = new CalculatorClient("127.0.0.1", port)) {
+                long sent = 0;
+                long received = 0;
+                for (; sent < depth; sent++) {
+                    sentAt[(int) sent & mask] = System.nanoTime();
+                    send(client, sent);
+                }
+                while (received < sent) {
+                    try {
+                        client.receive();
+                    } catch (CalculatorException e) {
+                        errors++;
+                    }
+                    long now = System.nanoTime();
+                    if (now >= warmupEnd && now < end) {
+                        latencies.record(now - sentAt[(int) received & mask]);
+                    }
+                    received++;
+                    if (now < end) {
+                        sentAt[(int) sent & mask] = now;
+                        send(client, sent++);
+                    }
+                }
+            }
+        }
+        
+        private static void send(CalculatorClient client, long i) {
+            byte opcode = MIX[(int) (i % MIX.length)];
+            double a = 1 + (i & 1023) * 0.5;
+            double b = opcode == CalculatorProtocol.OP_POWER ? 1.5 : 3 + (i & 63);
+            client.send(opcode, a, b);
+        }
+    }
+    
+    /**
+     * Log-linear latency histogram: values below SUB_BUCKETS ns are exact,
+     * larger ones are rounded down to about 3% (SUB_BUCKETS buckets per
+     * power of two)
+     */
+    private static final class LatencyHistogram {
+        
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        
+        private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS];
+        private long count;
+        private long max;
+        
+        void record(long nanos) {
+            counts[index(nanos)]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+        
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+        
+        long count() {
+            return count;
+        }
+        
+        long max() {
+            return max;
+        }
+        
+        long percentile(double p) {
+            long target = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return lowest(i);
+                }
+            }
+            return max;
+        }
+        
+        private static int index(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) Math.max(0, nanos);
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+        }
+        
+        private static long lowest(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        }
+    }
+}
\ No newline at end of file
@@ -1,3 +1,5 @@
+import java.util.OptionalDouble;
+
 /**
  * Core calculation engine with basic and advanced arithmetic operations
  * Implements robust exception handling for all operations
@@ -6,6 +8,77 @@ public class CalculatorEngine {
     
     private static final double EPSILON = 1e-10;
     
+    // Shared stackless errors thrown when the engine is built with
+    // preallocatedErrors; messages are fixed so nothing is allocated per failure
+    private static final InvalidOperationException NAN_OPERAND =
+        new InvalidOperationException("Operand is NaN (Not a Number)", false);
+    private static final InvalidOperationException INFINITE_OPERAND =
+        new InvalidOperationException("Operand is infinite", false);
+    private static final DivisionByZeroException DIVIDE_BY_ZERO =
+        new DivisionByZeroException("Cannot divide by zero", false);
+    private static final DivisionByZeroException MODULO_BY_ZERO =
+        new DivisionByZeroException("Cannot perform modulo with zero divisor", false);
+    private static final OverflowException OVERFLOW =
+        new OverflowException("Result exceeds maximum representable value", false);
+    private static final InvalidOperationException NEGATIVE_BASE =
+        new InvalidOperationException("Cannot raise negative number to non-integer power", false);
+    private static final InvalidOperationException NEGATIVE_ROOT =
+        new InvalidOperationException("Cannot calculate square root of negative number", false);
+    private static final InvalidOperationException TANGENT_ASYMPTOTE =
+        new InvalidOperationException("Tangent is undefined at odd multiples of 90°", false);
+    private static final InvalidOperationException LOG_DOMAIN =
+        new InvalidOperationException("Logarithm is only defined for positive numbers", false);
+    private static final InvalidOperationException LN_DOMAIN =
+        new InvalidOperationException("Natural logarithm is only defined for positive numbers", false);
+    private static final InvalidOperationException NEGATIVE_FACTORIAL =
+        new InvalidOperationException("Factorial is only defined for non-negative integers", false);
+    private static final InvalidOperationException FACTORIAL_RANGE =
+        new InvalidOperationException("Factorial exceeds long capacity (max n=20)", false);
+    
+    // Per-element status codes reported by the batch operations
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_INVALID_OPERAND = 1;
+    public static final byte STATUS_DIVISION_BY_ZERO = 2;
+    public static final byte STATUS_OVERFLOW = 3;
+    public static final byte STATUS_INVALID_OPERATION = 4;
+    
+    private final boolean preallocatedErrors;
+    private final TrigMode trigMode;
+    
+    public CalculatorEngine() {
+        this(false);
+    }
+    
+    /**
+     * preallocatedErrors = true throws shared, stackless exception instances
+     * with generic messages instead of building a new exception per failure;
+     * meant for batch runs where invalid input is common
+     */
+    public CalculatorEngine(boolean preallocatedErrors) {
+        this(preallocatedErrors, TrigMode.RADIANS);
+    }
+    
+    /**
+     * Trig evaluated in trigMode; RADIANS (the default) is the fastest exact
+     * library path, EXACT_DEGREES trades a few ns per call for exact results
+     * at multiples of 30° and 45°
+     */
+    public CalculatorEngine(boolean preallocatedErrors, TrigMode trigMode) {
+        if (trigMode == null) {
+            throw new InvalidInputException("Trig mode cannot be null");
+        }
+        this.preallocatedErrors = preallocatedErrors;
+        this.trigMode = trigMode;
+    }
+    
+    public boolean usesPreallocatedErrors() {
+        return preallocatedErrors;
+    }
+    
+    public TrigMode getTrigMode() {
+        return trigMode;
+    }
+    
     // Basic Operations
     public double add(double a, double b) {
         validateNumber(a, "First operand");
@@ -32,7 +105,8 @@ public class CalculatorEngine {
         validateNumber(b, "Divisor");
         
         if (Math.abs(b) < EPSILON) {
-            throw new DivisionByZeroException("Cannot divide by zero");
+            throw preallocatedErrors ? DIVIDE_BY_ZERO
+                : new DivisionByZeroException("Cannot divide by zero");
         }
         
         double result = a / b;
@@ -46,7 +120,7 @@ public class CalculatorEngine {
         validateNumber(exponent, "Exponent");
         
         if (base < 0 && !isInteger(exponent)) {
-            throw new InvalidOperationException(
+            throw preallocatedErrors ? NEGATIVE_BASE : new InvalidOperationException(
                 "Cannot raise negative number to non-integer power");
         }
         
@@ -60,7 +134,7 @@ public class CalculatorEngine {
         validateNumber(number, "Number");
         
         if (number < 0) {
-            throw new InvalidOperationException(
+            throw preallocatedErrors ? NEGATIVE_ROOT : new InvalidOperationException(
                 "Cannot calculate square root of negative number");
         }
         
@@ -72,7 +146,8 @@ public class CalculatorEngine {
         validateNumber(b, "Divisor");
         
         if (Math.abs(b) < EPSILON) {
-            throw new DivisionByZeroException("Cannot perform modulo with zero divisor");
+            throw preallocatedErrors ? MODULO_BY_ZERO
+                : new DivisionByZeroException("Cannot perform modulo with zero divisor");
         }
         
         return a % b;
@@ -86,36 +161,55 @@ public class CalculatorEngine {
     // Scientific Operations
     public double sine(double degrees) {
         validateNumber(degrees, "Angle");
+        if (trigMode != TrigMode.RADIANS) {
+            return DegreeTrig.sin(degrees, trigMode == TrigMode.TABLE);
+        }
         double radians = Math.toRadians(degrees);
         return Math.sin(radians);
     }
     
     public double cosine(double degrees) {
         validateNumber(degrees, "Angle");
+        if (trigMode != TrigMode.RADIANS) {
+            return DegreeTrig.cos(degrees, trigMode == TrigMode.TABLE);
+        }
         double radians = Math.toRadians(degrees);
         return Math.cos(radians);
     }
     
     public double tangent(double degrees) {
         validateNumber(degrees, "Angle");
-        double radians = Math.toRadians(degrees);
+        
+        if (trigMode != TrigMode.RADIANS) {
+            // The exact reduction finds the asymptotes itself (NaN)
+            double result = DegreeTrig.tan(degrees, trigMode == TrigMode.TABLE);
+            if (Double.isNaN(result)) {
+                throw tangentAsymptote(degrees);
+            }
+            return result;
+        }
         
         // Check for asymptotes (90°, 270°, etc.)
         double normalizedDegrees = degrees % 180;
         if (Math.abs(normalizedDegrees - 90) < EPSILON || 
             Math.abs(normalizedDegrees + 90) < EPSILON) {
-            throw new InvalidOperationException(
-                "Tangent is undefined at " + degrees + "°");
+            throw tangentAsymptote(degrees);
         }
         
+        double radians = Math.toRadians(degrees);
         return Math.tan(radians);
     }
     
+    private InvalidOperationException tangentAsymptote(double degrees) {
+        return preallocatedErrors ? TANGENT_ASYMPTOTE : new InvalidOperationException(
+            "Tangent is undefined at " + degrees + "°");
+    }
+    
     public double logarithm(double number) {
         validateNumber(number, "Number");
         
         if (number <= 0) {
-            throw new InvalidOperationException(
+            throw preallocatedErrors ? LOG_DOMAIN : new InvalidOperationException(
                 "Logarithm is only defined for positive numbers");
         }
         
@@ -126,7 +220,7 @@ public class CalculatorEngine {
         validateNumber(number, "Number");
         
         if (number <= 0) {
-            throw new InvalidOperationException(
+            throw preallocatedErrors ? LN_DOMAIN : new InvalidOperationException(
                 "Natural logarithm is only defined for positive numbers");
         }
         
@@ -135,12 +229,12 @@ public class CalculatorEngine {
     
     public long factorial(int n) {
         if (n < 0) {
-            throw new InvalidOperationException(
+            throw preallocatedErrors ? NEGATIVE_FACTORIAL : new InvalidOperationException(
                 "Factorial is only defined for non-negative integers");
         }
         
         if (n > 20) {
-            throw new InvalidOperationException(
+            throw preallocatedErrors ? FACTORIAL_RANGE : new InvalidOperationException(
                 "Factorial of " + n + " exceeds long capacity (max n=20)");
         }
         
@@ -152,23 +246,218 @@ public class CalculatorEngine {
         return result;
     }
     
+    // Batch Operations
+    // Each element is validated and computed independently; failures are
+    // written to status[i] (out[i] becomes NaN) instead of being thrown.
+    // Returns the number of elements that failed.
+    
+    public int add(double[] a, double[] b, double[] out, byte[] status) {
+        int n = checkBatch(a, b, out, status);
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] + b[i];
+        }
+        return finishBatch(a, b, out, status, n);
+    }
+    
+    public int subtract(double[] a, double[] b, double[] out, byte[] status) {
+        int n = checkBatch(a, b, out, status);
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] - b[i];
+        }
+        return finishBatch(a, b, out, status, n);
+    }
+    
+    public int multiply(double[] a, double[] b, double[] out, byte[] status) {
+        int n = checkBatch(a, b, out, status);
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+        return finishBatch(a, b, out, status, n);
+    }
+    
+    public int divide(double[] a, double[] b, double[] out, byte[] status) {
+        int n = checkBatch(a, b, out, status);
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] / b[i];
+        }
+        int failures = finishBatch(a, b, out, status, n);
+        for (int i = 0; i < n; i++) {
+            if (status[i] != STATUS_INVALID_OPERAND && Math.abs(b[i]) < EPSILON) {
+                if (status[i] == STATUS_OK) {
+                    failures++;
+                }
+                status[i] = STATUS_DIVISION_BY_ZERO;
+                out[i] = Double.NaN;
+            }
+        }
+        return failures;
+    }
+    
+    public int power(double[] base, double[] exponent, double[] out, byte[] status) {
+        int n = checkBatch(base, exponent, out, status);
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            double result = Math.pow(base[i], exponent[i]);
+            byte code = powerStatus(base[i], exponent[i], result);
+            status[i] = code;
+            if (code != STATUS_OK) {
+                out[i] = Double.NaN;
+                failures++;
+            } else {
+                out[i] = result;
+            }
+        }
+        return failures;
+    }
+    
+    // Non-throwing Operations
+    // The throwing methods' checks, with a failure yielding an empty result
+    // instead of an exception. Like the batch methods, they also treat an
+    // infinite result from finite operands as overflow, so tryAdd and
+    // trySubtract are empty where add and subtract return Infinity.
+    // statusOf* report the STATUS_* code (the reason) without computing
+    // anything.
+    
+    public OptionalDouble tryAdd(double a, double b) {
+        return finite(a + b, operandStatus(a, b));
+    }
+    
+    public OptionalDouble trySubtract(double a, double b) {
+        return finite(a - b, operandStatus(a, b));
+    }
+    
+    public OptionalDouble tryMultiply(double a, double b) {
+        return finite(a * b, operandStatus(a, b));
+    }
+    
+    public OptionalDouble tryDivide(double a, double b) {
+        return finite(a / b, statusOfDivide(a, b));
+    }
+    
+    public OptionalDouble tryModulo(double a, double b) {
+        return finite(a % b, statusOfDivide(a, b));
+    }
+    
+    public OptionalDouble tryPower(double base, double exponent) {
+        double result = Math.pow(base, exponent);
+        return powerStatus(base, exponent, result) == STATUS_OK
+            ? OptionalDouble.of(result) : OptionalDouble.empty();
+    }
+    
+    public OptionalDouble trySquareRoot(double number) {
+        return Double.isFinite(number) && number >= 0
+            ? OptionalDouble.of(Math.sqrt(number)) : OptionalDouble.empty();
+    }
+    
+    public OptionalDouble tryLogarithm(double number) {
+        return Double.isFinite(number) && number > 0
+            ? OptionalDouble.of(Math.log10(number)) : OptionalDouble.empty();
+    }
+    
+    public OptionalDouble tryNaturalLog(double number) {
+        return Double.isFinite(number) && number > 0
+            ? OptionalDouble.of(Math.log(number)) : OptionalDouble.empty();
+    }
+    
+    /**
+     * Status of divide(a, b) or modulo(a, b) without throwing;
+     * overflow of the quotient is not included
+     */
+    public static byte statusOfDivide(double a, double b) {
+        byte code = operandStatus(a, b);
+        if (code == STATUS_OK && Math.abs(b) < EPSILON) {
+            return STATUS_DIVISION_BY_ZERO;
+        }
+        return code;
+    }
+    
+    /**
+     * Status of power(base, exponent) without throwing
+     */
+    public static byte statusOfPower(double base, double exponent) {
+        return powerStatus(base, exponent, Math.pow(base, exponent));
+    }
+    
     // Helper methods
+    private static byte operandStatus(double a, double b) {
+        return Double.isFinite(a) && Double.isFinite(b) ? STATUS_OK : STATUS_INVALID_OPERAND;
+    }
+    
+    private static OptionalDouble finite(double result, byte status) {
+        return status == STATUS_OK && Double.isFinite(result)
+            ? OptionalDouble.of(result) : OptionalDouble.empty();
+    }
+    
+    private static byte powerStatus(double base, double exponent, double result) {
+        if (!Double.isFinite(base) || !Double.isFinite(exponent)) {
+            return STATUS_INVALID_OPERAND;
+        }
+        if (base < 0 && !isInteger(exponent)) {
+            return STATUS_INVALID_OPERATION;
+        }
+        if (Double.isInfinite(result)) {
+            return STATUS_OVERFLOW;
+        }
+        if (Double.isNaN(result)) {
+            return STATUS_INVALID_OPERATION;
+        }
+        return STATUS_OK;
+    }
+    
     private void validateNumber(double number, String name) {
         if (Double.isNaN(number)) {
-            throw new InvalidOperationException(name + " is NaN (Not a Number)");
+            throw preallocatedErrors ? NAN_OPERAND
+                : new InvalidOperationException(name + " is NaN (Not a Number)");
         }
         if (Double.isInfinite(number)) {
-            throw new InvalidOperationException(name + " is infinite");
+            throw preallocatedErrors ? INFINITE_OPERAND
+                : new InvalidOperationException(name + " is infinite");
         }
     }
     
     private void checkOverflow(double result) {
         if (Double.isInfinite(result)) {
-            throw new OverflowException("Result exceeds maximum representable value");
+            throw preallocatedErrors ? OVERFLOW
+                : new OverflowException("Result exceeds maximum representable value");
+        }
+    }
+    
+    private int checkBatch(double[] a, double[] b, double[] out, byte[] status) {
+        if (a == null || b == null || out == null || status == null) {
+            throw new InvalidInputException("Batch arrays cannot be null");
+        }
+        int n = a.length;
+        if (b.length != n || out.length < n || status.length < n) {
+            throw new InvalidInputException(
+                "Batch arrays must have matching lengths (expected " + n + ")");
+        }
+        return n;
+    }
+    
+    /**
+     * Classify the raw results of an element-wise pass: operands that are
+     * NaN/infinite are reported as invalid, finite operands that produced an
+     * infinite result as overflow.
+     */
+    private int finishBatch(double[] a, double[] b, double[] out, byte[] status, int n) {
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            byte code = STATUS_OK;
+            if (!Double.isFinite(a[i]) || !Double.isFinite(b[i])) {
+                code = STATUS_INVALID_OPERAND;
+            } else if (Double.isInfinite(out[i])) {
+                code = STATUS_OVERFLOW;
+            }
+            status[i] = code;
+            if (code != STATUS_OK) {
+                out[i] = Double.NaN;
+                failures++;
+            }
         }
+        return failures;
     }
     
-    private boolean isInteger(double value) {
+    private static boolean isInteger(double value) {
         return Math.abs(value - Math.round(value)) < EPSILON;
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of the calculator service (CalculatorServer / CalculatorClient)
+ *
+ * Every message is a frame: a 4-byte length, then that many bytes of body.
+ * All numbers are big-endian (ByteBuffer's default order).
+ *
+ *   request   int id, byte opcode, operands
+ *   response  int id, byte status, result   (status STATUS_OK)
+ *             int id, byte status, short n, n bytes of UTF-8 message (otherwise)
+ *
+ * Operands and results by opcode:
+ *   ADD .. MODULO        double a, double b             -> double
+ *   SQUARE_ROOT .. LN    double x (angles in degrees)   -> double
+ *   FACTORIAL            int n                          -> double
+ *   STATISTICS           int n, n doubles               -> int n, double mean,
+ *                        median, mode, standardDeviation, min, max
+ *   BATCH                byte opcode (ADD .. POWER), int n, n doubles a,
+ *                        n doubles b                    -> int n, n status
+ *                        bytes, n doubles (NaN where the status is not OK)
+ *   HISTORY              int limit                      -> int n, n bytes of
+ *                        UTF-8 text, the latest entries one per line
+ *
+ * Requests on one connection are answered in order, so a client may send
+ * many before reading any response (pipelining); the id is echoed back.
+ * Status codes 0-4 are CalculatorEngine's STATUS_* codes.
+ */
+public final class CalculatorProtocol {
+    
+    public static final byte OP_ADD = 1;
+    public static final byte OP_SUBTRACT = 2;
+    public static final byte OP_MULTIPLY = 3;
+    public static final byte OP_DIVIDE = 4;
+    public static final byte OP_POWER = 5;
+    public static final byte OP_MODULO = 6;
+    public static final byte OP_SQUARE_ROOT = 7;
+    public static final byte OP_ABSOLUTE = 8;
+    public static final byte OP_SINE = 9;
+    public static final byte OP_COSINE = 10;
+    public static final byte OP_TANGENT = 11;
+    public static final byte OP_LOGARITHM = 12;
+    public static final byte OP_NATURAL_LOG = 13;
+    public static final byte OP_FACTORIAL = 14;
+    public static final byte OP_STATISTICS = 15;
+    public static final byte OP_BATCH = 16;
+    public static final byte OP_HISTORY = 17;
+    
+    /**
+     * Malformed frame, unknown opcode or a feature the server has disabled
+     */
+    public static final byte STATUS_BAD_REQUEST = 5;
+    
+    // Body bytes before the operands / result: id and opcode or status
+    static final int HEADER_SIZE = Integer.BYTES + 1;
+    static final int MAX_FRAME = 1 << 24;
+    static final int BUFFER_SIZE = 1 << 16;
+    
+    private CalculatorProtocol() {
+    }
+    
+    /**
+     * Operands of a scalar request: 2 doubles, 1 double, or 1 int for
+     * FACTORIAL; -1 for opcodes that are not scalar
+     */
+    static int operandBytes(byte opcode) {
+        if (opcode >= OP_ADD && opcode <= OP_MODULO) {
+            return 2 * Double.BYTES;
+        }
+        if (opcode >= OP_SQUARE_ROOT && opcode <= OP_NATURAL_LOG) {
+            return Double.BYTES;
+        }
+        return opcode == OP_FACTORIAL ? Integer.BYTES : -1;
+    }
+    
+    /**
+     * Status for a failed request. A NaN or infinite operand is
+     * STATUS_INVALID_OPERAND for every opcode, as in the engine's batch
+     * results; the server checks operands before calling the engine, whose
+     * scalar methods would report them as InvalidOperationException
+     */
+    static byte statusOf(CalculatorException e) {
+        if (e instanceof DivisionByZeroException) {
+            return CalculatorEngine.STATUS_DIVISION_BY_ZERO;
+        }
+        if (e instanceof OverflowException) {
+            return CalculatorEngine.STATUS_OVERFLOW;
+        }
+        if (e instanceof InvalidOperationException) {
+            return CalculatorEngine.STATUS_INVALID_OPERATION;
+        }
+        if (e instanceof InvalidInputException) {
+            return CalculatorEngine.STATUS_INVALID_OPERAND;
+        }
+        return STATUS_BAD_REQUEST;
+    }
+    
+    /**
+     * The exception a client throws for an error response
+     */
+    static CalculatorException exceptionFor(byte status, String message) {
+        return switch (status) {
+            case CalculatorEngine.STATUS_INVALID_OPERAND -> new InvalidInputException(message);
+            case CalculatorEngine.STATUS_DIVISION_BY_ZERO -> new DivisionByZeroException(message);
+            case CalculatorEngine.STATUS_OVERFLOW -> new OverflowException(message);
+            case CalculatorEngine.STATUS_INVALID_OPERATION -> new InvalidOperationException(message);
+            default -> new CalculatorException(message);
+        };
+    }
+    
+    static void putString(ByteBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, Short.MAX_VALUE);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+    
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
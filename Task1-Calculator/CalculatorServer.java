@@ -0,0 +1,508 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Calculator service on the loopback interface, speaking CalculatorProtocol
+ *
+ * An acceptor thread hands each connection to one of a fixed set of event
+ * loops. A loop owns a Selector, a CalculatorEngine with preallocated errors
+ * and its connections: on each read it answers every complete request in
+ * the input buffer and writes all the responses back with one write, so
+ * pipelined and batched requests cost one system call per read, not per
+ * request. While a client is not draining its responses the loop stops
+ * reading from it.
+ *
+ * Scalar and statistics requests are recorded in the shared HistoryManager
+ * (whose writers are thread-safe), as CalculatorApp would record them;
+ * batches are not. Pass null to run without history.
+ */
+public class CalculatorServer implements AutoCloseable {
+    
+    // Answered with STATUS_BAD_REQUEST; BAD_FRAME drops the connection
+    private static final CalculatorException UNKNOWN_OPCODE =
+        new CalculatorException("Unknown operation", false);
+    private static final CalculatorException MALFORMED_REQUEST =
+        new CalculatorException("Malformed request", false);
+    private static final InvalidInputException NON_FINITE_OPERAND =
+        new InvalidInputException("Operand is NaN or infinite", false);
+    private static final ProtocolException BAD_FRAME = new ProtocolException();
+    
+    private final ServerSocketChannel acceptor;
+    private final HistoryManager history;
+    private final EventLoop[] loops;
+    private final Thread acceptThread;
+    private volatile boolean running = true;
+    
+    /**
+     * Listen on 127.0.0.1:port (0 picks a free port) with the given number
+     * of event loop threads
+     */
+    public CalculatorServer(int port, int threads, HistoryManager history) {
+        if (threads <= 0) {
+            throw new InvalidInputException("Thread count must be positive");
+        }
+        this.history = history;
+        try {
+            acceptor = ServerSocketChannel.open();
+            acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            loops = new EventLoop[threads];
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new EventLoop(Selector.open(), "calculator-loop-" + i);
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot start calculator service on port " + port + ": "
+                + e.getMessage(), e);
+        }
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptThread = new Thread(this::acceptConnections, "calculator-acceptor");
+        acceptThread.start();
+    }
+    
+    public int getPort() {
+        return acceptor.socket().getLocalPort();
+    }
+    
+    /**
+     * Requests answered so far, across all connections
+     */
+    public long getRequestCount() {
+        long total = 0;
+        for (EventLoop loop : loops) {
+            total += loop.requests;
+        }
+        return total;
+    }
+    
+    /**
+     * Stop accepting, close every connection and wait for the threads
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            acceptor.close();
+        } catch (IOException e) {
+            // Already closing; nothing else to release
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            acceptThread.join();
+            for (EventLoop loop : loops) {
+                loop.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void acceptConnections() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = acceptor.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].add(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Calculator service: accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    // ============ EVENT LOOP ============
+    
+    private final class EventLoop implements Runnable {
+        
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        final CalculatorEngine engine = new CalculatorEngine(true);
+        final StringBuilder operation = new StringBuilder(64);
+        volatile long requests;
+        
+        EventLoop(Selector selector, String name) {
+            this.selector = selector;
+            this.thread = new Thread(this, name);
+        }
+        
+        void add(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(this::handle);
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        Connection connection = new Connection(this, channel);
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Calculator service: event loop failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly((Connection) key.attachment());
+                }
+                SocketChannel unregistered;
+                while ((unregistered = pending.poll()) != null) {
+                    try {
+                        unregistered.close();
+                    } catch (IOException e) {
+                        // Never served; nothing to flush
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Shutting down anyway
+                }
+            }
+        }
+        
+        /**
+         * Record a scalar result with the text CalculatorApp would use
+         */
+        void record(byte opcode, double a, double b, double result) {
+            if (history == null) {
+                return;
+            }
+            StringBuilder text = operation;
+            text.setLength(0);
+            switch (opcode) {
+                case CalculatorProtocol.OP_ADD -> appendBinary(text, a, " + ", b);
+                case CalculatorProtocol.OP_SUBTRACT -> appendBinary(text, a, " - ", b);
+                case CalculatorProtocol.OP_MULTIPLY -> appendBinary(text, a, " × ", b);
+                case CalculatorProtocol.OP_DIVIDE -> appendBinary(text, a, " ÷ ", b);
+                case CalculatorProtocol.OP_POWER -> appendBinary(text, a, " ^ ", b);
+                case CalculatorProtocol.OP_MODULO -> appendBinary(text, a, " mod ", b);
+                case CalculatorProtocol.OP_SQUARE_ROOT -> appendUnary(text, "√", a, "");
+                case CalculatorProtocol.OP_ABSOLUTE -> appendUnary(text, "|", a, "|");
+                case CalculatorProtocol.OP_SINE -> appendUnary(text, "sin(", a, "°)");
+                case CalculatorProtocol.OP_COSINE -> appendUnary(text, "cos(", a, "°)");
+                case CalculatorProtocol.OP_TANGENT -> appendUnary(text, "tan(", a, "°)");
+                case CalculatorProtocol.OP_LOGARITHM -> appendUnary(text, "log₁₀(", a, ")");
+                case CalculatorProtocol.OP_NATURAL_LOG -> appendUnary(text, "ln(", a, ")");
+                default -> text.append((int) a).append('!');
+            }
+            history.addEntry(text.toString(), result);
+        }
+        
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isWritable()) {
+                    connection.flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.read();
+                }
+            } catch (IOException | ProtocolException e) {
+                closeQuietly(connection);
+            }
+        }
+    }
+    
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.key.cancel();
+            connection.channel.close();
+        } catch (IOException e) {
+            // The connection is gone either way
+        }
+    }
+    
+    /**
+     * A frame that cannot be answered; the connection is dropped
+     */
+    private static final class ProtocolException extends Exception {
+        ProtocolException() {
+            super(null, null, false, false);
+        }
+    }
+    
+    // ============ CONNECTION ============
+    
+    private final class Connection {
+        
+        final EventLoop loop;
+        final SocketChannel channel;
+        SelectionKey key;
+        
+        // in is kept in write mode between reads, out in write mode until flushed
+        ByteBuffer in = ByteBuffer.allocateDirect(CalculatorProtocol.BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocateDirect(CalculatorProtocol.BUFFER_SIZE);
+        
+        // Reused batch arrays
+        double[] left = new double[0];
+        double[] right = new double[0];
+        double[] results = new double[0];
+        byte[] status = new byte[0];
+        
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+        
+        void read() throws IOException, ProtocolException {
+            if (channel.read(in) < 0) {
+                closeQuietly(this);
+                return;
+            }
+            in.flip();
+            long answered = 0;
+            while (in.remaining() >= Integer.BYTES) {
+                int length = in.getInt(in.position());
+                if (length < CalculatorProtocol.HEADER_SIZE || length > CalculatorProtocol.MAX_FRAME) {
+                    throw BAD_FRAME;
+                }
+                if (in.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                answer(length);
+                answered++;
+            }
+            in.compact();
+            if (in.position() == in.capacity() && in.position() >= Integer.BYTES) {
+                // A partial frame fills the buffer: make room for all of it
+                in = grow(in, Integer.BYTES + in.getInt(0));
+            }
+            loop.requests += answered;
+            flush();
+        }
+        
+        /**
+         * Write pending responses; until they are all out, wait for the
+         * socket to drain instead of reading more requests
+         */
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+        
+        /**
+         * Answer the request at in's position; on return in is past it
+         */
+        private void answer(int length) {
+            int frameEnd = in.position() + Integer.BYTES + length;
+            int limit = in.limit();
+            in.position(in.position() + Integer.BYTES).limit(frameEnd);
+            int id = in.getInt();
+            byte opcode = in.get();
+            
+            reserve(Integer.BYTES + CalculatorProtocol.HEADER_SIZE + 7 * Double.BYTES);
+            int start = out.position();
+            out.putInt(0).putInt(id).put(CalculatorEngine.STATUS_OK);
+            try {
+                execute(opcode);
+                if (in.hasRemaining()) {
+                    throw MALFORMED_REQUEST;
+                }
+            } catch (CalculatorException | IllegalArgumentException | BufferUnderflowException e) {
+                byte code = e instanceof CalculatorException
+                    ? CalculatorProtocol.statusOf((CalculatorException) e) : CalculatorProtocol.STATUS_BAD_REQUEST;
+                String message = e instanceof BufferUnderflowException
+                    ? MALFORMED_REQUEST.getMessage() : e.getMessage();
+                out.position(start);
+                reserve(Integer.BYTES + CalculatorProtocol.HEADER_SIZE + Short.BYTES + 3 * message.length());
+                out.putInt(0).putInt(id).put(code);
+                CalculatorProtocol.putString(out, message);
+            }
+            out.putInt(start, out.position() - start - Integer.BYTES);
+            in.limit(limit).position(frameEnd);
+        }
+        
+        private void execute(byte opcode) {
+            CalculatorEngine engine = loop.engine;
+            switch (opcode) {
+                case CalculatorProtocol.OP_ADD, CalculatorProtocol.OP_SUBTRACT,
+                    CalculatorProtocol.OP_MULTIPLY, CalculatorProtocol.OP_DIVIDE,
+                    CalculatorProtocol.OP_POWER, CalculatorProtocol.OP_MODULO -> {
+                    double a = operand();
+                    double b = operand();
+                    double result = binary(engine, opcode, a, b);
+                    out.putDouble(result);
+                    loop.record(opcode, a, b, result);
+                }
+                case CalculatorProtocol.OP_SQUARE_ROOT, CalculatorProtocol.OP_ABSOLUTE,
+                    CalculatorProtocol.OP_SINE, CalculatorProtocol.OP_COSINE,
+                    CalculatorProtocol.OP_TANGENT, CalculatorProtocol.OP_LOGARITHM,
+                    CalculatorProtocol.OP_NATURAL_LOG -> {
+                    double x = operand();
+                    double result = unary(engine, opcode, x);
+                    out.putDouble(result);
+                    loop.record(opcode, x, 0, result);
+                }
+                case CalculatorProtocol.OP_FACTORIAL -> {
+                    int n = in.getInt();
+                    double result = engine.factorial(n);
+                    out.putDouble(result);
+                    loop.record(opcode, n, 0, result);
+                }
+                case CalculatorProtocol.OP_STATISTICS -> statistics();
+                case CalculatorProtocol.OP_BATCH -> batch(engine);
+                case CalculatorProtocol.OP_HISTORY -> history();
+                default -> throw UNKNOWN_OPCODE;
+            }
+        }
+        
+        /**
+         * Next double of the request; non-finite operands get the status
+         * batch requests report for them
+         */
+        private double operand() {
+            double value = in.getDouble();
+            if (!Double.isFinite(value)) {
+                throw NON_FINITE_OPERAND;
+            }
+            return value;
+        }
+        
+        private void statistics() {
+            int n = in.getInt();
+            if (n < 0 || n > in.remaining() / Double.BYTES) {
+                throw MALFORMED_REQUEST;
+            }
+            double[] data = new double[n];
+            in.asDoubleBuffer().get(data);
+            in.position(in.position() + n * Double.BYTES);
+            
+            StatisticalCalculator stats = new StatisticalCalculator(data);
+            out.putInt(n)
+                .putDouble(stats.mean())
+                .putDouble(stats.median())
+                .putDouble(stats.mode())
+                .putDouble(stats.standardDeviation())
+                .putDouble(stats.min())
+                .putDouble(stats.max());
+            if (history != null) {
+                history.addEntry(OperationType.STATISTICS, "Statistical Analysis", stats.mean());
+            }
+        }
+        
+        private void batch(CalculatorEngine engine) {
+            byte opcode = in.get();
+            int n = in.getInt();
+            if (n < 0 || n > in.remaining() / (2 * Double.BYTES)) {
+                throw MALFORMED_REQUEST;
+            }
+            // The engine takes its length from the operand arrays
+            if (left.length != n) {
+                left = new double[n];
+                right = new double[n];
+            }
+            if (results.length < n) {
+                results = new double[n];
+                status = new byte[n];
+            }
+            in.asDoubleBuffer().get(left).get(right);
+            in.position(in.position() + 2 * n * Double.BYTES);
+            
+            switch (opcode) {
+                case CalculatorProtocol.OP_ADD -> engine.add(left, right, results, status);
+                case CalculatorProtocol.OP_SUBTRACT -> engine.subtract(left, right, results, status);
+                case CalculatorProtocol.OP_MULTIPLY -> engine.multiply(left, right, results, status);
+                case CalculatorProtocol.OP_DIVIDE -> engine.divide(left, right, results, status);
+                case CalculatorProtocol.OP_POWER -> engine.power(left, right, results, status);
+                default -> throw UNKNOWN_OPCODE;
+            }
+            
+            reserve(Integer.BYTES + n * (1 + Double.BYTES));
+            out.putInt(n).put(status, 0, n);
+            out.asDoubleBuffer().put(results, 0, n);
+            out.position(out.position() + n * Double.BYTES);
+        }
+        
+        private void history() {
+            int limit = Math.max(0, in.getInt());
+            if (history == null) {
+                throw new CalculatorException("History is disabled on this server");
+            }
+            StringBuilder text = new StringBuilder();
+            history.render(Math.max(0, history.size() - limit), limit, text);
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            reserve(Integer.BYTES + bytes.length);
+            out.putInt(bytes.length).put(bytes);
+        }
+        
+        /**
+         * Make room for at least bytes more output
+         */
+        private void reserve(int bytes) {
+            if (out.remaining() < bytes) {
+                out = grow(out, out.position() + bytes);
+            }
+        }
+    }
+    
+    private static double binary(CalculatorEngine engine, byte opcode, double a, double b) {
+        return switch (opcode) {
+            case CalculatorProtocol.OP_ADD -> engine.add(a, b);
+            case CalculatorProtocol.OP_SUBTRACT -> engine.subtract(a, b);
+            case CalculatorProtocol.OP_MULTIPLY -> engine.multiply(a, b);
+            case CalculatorProtocol.OP_DIVIDE -> engine.divide(a, b);
+            case CalculatorProtocol.OP_POWER -> engine.power(a, b);
+            default -> engine.modulo(a, b);
+        };
+    }
+    
+    private static double unary(CalculatorEngine engine, byte opcode, double x) {
+        return switch (opcode) {
+            case CalculatorProtocol.OP_SQUARE_ROOT -> engine.squareRoot(x);
+            case CalculatorProtocol.OP_ABSOLUTE -> engine.absolute(x);
+            case CalculatorProtocol.OP_SINE -> engine.sine(x);
+            case CalculatorProtocol.OP_COSINE -> engine.cosine(x);
+            case CalculatorProtocol.OP_TANGENT -> engine.tangent(x);
+            case CalculatorProtocol.OP_LOGARITHM -> engine.logarithm(x);
+            default -> engine.naturalLog(x);
+        };
+    }
+    
+    private static void appendBinary(StringBuilder text, double a, String symbol, double b) {
+        HistoryFormatter.appendDouble(text, a);
+        text.append(symbol);
+        HistoryFormatter.appendDouble(text, b);
+    }
+    
+    private static void appendUnary(StringBuilder text, String prefix, double x, String suffix) {
+        text.append(prefix);
+        HistoryFormatter.appendDouble(text, x);
+        text.append(suffix);
+    }
+    
+    /**
+     * A buffer of at least the given capacity holding buffer's contents
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(capacity, buffer.capacity() * 2));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
\ No newline at end of file
@@ -20,6 +20,24 @@ public class CalculatorTestSuite {
         testExceptionHandling();
         testHistoryManager();
         testEdgeCases();
+        testBatchOperations();
+        testExpressions();
+        testStreamingStatistics();
+        testPercentiles();
+        testModes();
+        testSummary();
+        testParallelStatistics();
+        testMappedDataset();
+        testHistoryLog();
+        testConcurrentHistory();
+        testHistoryRendering();
+        testHistoryQueries();
+        testPreallocatedErrors();
+        testPrecisionEngine();
+        testCachedEngine();
+        testDegreeTrig();
+        testScriptRunner();
+        testCalculatorService();
         
         printTestSummary();
     }
@@ -207,6 +225,25 @@ public class CalculatorTestSuite {
             history.addEntry("test", i);
         }
         test("History max size limit", history.size(), 100);
+        test("History oldest evicted", history.getEntry(0).getResult(), 5.0);
+        test("History newest kept", history.getEntry(99).getResult(), 104.0);
+        
+        HistoryManager ring = new HistoryManager(3);
+        for (int i = 0; i < 10; i++) {
+            ring.addEntry("op" + (i % 2), i);
+        }
+        test("Ring buffer capacity", ring.getCapacity(), 3);
+        test("Ring buffer size", ring.size(), 3);
+        test("Ring buffer order", ring.getEntry(0).getResult(), 7.0);
+        test("Ring buffer interned operation", 
+            ring.getEntry(2).getOperation().equals("op1"), true);
+        
+        testException("History invalid index", 
+            () -> ring.getEntry(3), 
+            InvalidInputException.class);
+        testException("History zero capacity", 
+            () -> new HistoryManager(0), 
+            InvalidInputException.class);
     }
     
     // ============ EDGE CASES TESTS ============
@@ -233,6 +270,810 @@ public class CalculatorTestSuite {
         test("Floating point precision", Math.abs(result - 0.3) < 0.0001, true);
     }
     
+    // ============ BATCH OPERATIONS TESTS ============
+    
+    private static void testBatchOperations() {
+        System.out.println("\n── Testing Batch Operations ──");
+        CalculatorEngine engine = new CalculatorEngine();
+        
+        double[] a = {10, 7, 1, Double.NaN, 1e308};
+        double[] b = {2, 0, 3, 1, 1e-5};
+        double[] out = new double[a.length];
+        byte[] status = new byte[a.length];
+        
+        int failures = engine.divide(a, b, out, status);
+        test("Batch divide: failure count", failures, 3);
+        test("Batch divide: 10 / 2", out[0], 5.0);
+        test("Batch divide: 1 / 3", out[2], 1.0 / 3, 0.000001);
+        test("Batch divide: zero divisor status", 
+            status[1] == CalculatorEngine.STATUS_DIVISION_BY_ZERO, true);
+        test("Batch divide: NaN operand status", 
+            status[3] == CalculatorEngine.STATUS_INVALID_OPERAND, true);
+        test("Batch divide: overflow status", 
+            status[4] == CalculatorEngine.STATUS_OVERFLOW, true);
+        
+        engine.add(a, b, out, status);
+        test("Batch add: 10 + 2", out[0], 12.0);
+        test("Batch add: NaN operand is NaN", Double.isNaN(out[3]), true);
+        
+        double[] bases = {2, -8, 4};
+        double[] exps = {10, 0.5, 0.5};
+        failures = engine.power(bases, exps, out, status);
+        test("Batch power: failure count", failures, 1);
+        test("Batch power: 2^10", out[0], 1024.0);
+        test("Batch power: negative base status", 
+            status[1] == CalculatorEngine.STATUS_INVALID_OPERATION, true);
+        
+        testException("Batch length mismatch", 
+            () -> engine.multiply(new double[2], new double[3], new double[3], new byte[3]), 
+            InvalidInputException.class);
+    }
+    
+    // ============ EXPRESSION TESTS ============
+    
+    private static void testExpressions() {
+        System.out.println("\n── Testing Expressions ──");
+        
+        test("Expression: 2 + 3 * 4", Expression.compile("2 + 3 * 4").evaluate(), 14.0);
+        test("Expression: (2 + 3) * 4", Expression.compile("(2 + 3) * 4").evaluate(), 20.0);
+        test("Expression: 2 ^ 3 ^ 2", Expression.compile("2 ^ 3 ^ 2").evaluate(), 512.0);
+        test("Expression: -2 ^ 2", Expression.compile("-2 ^ 2").evaluate(), -4.0);
+        test("Expression: sin(30) + cos(60)", 
+            Expression.compile("sin(30) + cos(60)").evaluate(), 1.0, 0.0001);
+        test("Expression: fact(5) % 7", Expression.compile("fact(5) % 7").evaluate(), 1.0);
+        
+        Expression hyp = Expression.compile("sqrt(a^2 + b^2) / ln(c)");
+        test("Expression variables", hyp.getVariables().size(), 3);
+        double[] bindings = {3, 4, Math.E};
+        test("Expression: sqrt(3^2 + 4^2) / ln(e)", hyp.evaluate(bindings), 5.0);
+        bindings[0] = 6;
+        bindings[1] = 8;
+        test("Expression: rebound variables", hyp.evaluate(bindings), 10.0);
+        
+        Expression div = Expression.compile("x / (y - 1)");
+        testException("Expression division by zero", 
+            () -> div.evaluate(new double[]{1, 1}), 
+            DivisionByZeroException.class);
+        testException("Expression tangent asymptote", 
+            () -> Expression.compile("tan(45 * 2)").evaluate(), 
+            InvalidOperationException.class);
+        testException("Expression syntax error", 
+            () -> Expression.compile("2 + * 3"), 
+            InvalidInputException.class);
+        testException("Expression unknown function", 
+            () -> Expression.compile("foo(1)"), 
+            InvalidInputException.class);
+    }
+    
+    // ============ STREAMING STATISTICS TESTS ============
+    
+    private static void testStreamingStatistics() {
+        System.out.println("\n── Testing Streaming Statistics ──");
+        
+        StreamingStatistics running = new StreamingStatistics();
+        for (double value : new double[]{2, 4, 4, 4, 5, 5, 7, 9}) {
+            running.accept(value);
+        }
+        test("Streaming count", running.getCount(), 8L);
+        test("Streaming mean", running.mean(), 5.0);
+        test("Streaming variance", running.variance(), 4.0);
+        test("Streaming std dev", running.standardDeviation(), 2.0);
+        test("Streaming sum", running.sum(), 40.0);
+        test("Streaming min/max", running.max() - running.min(), 7.0);
+        
+        StreamingStatistics left = new StreamingStatistics();
+        StreamingStatistics right = new StreamingStatistics();
+        left.accept(1);
+        left.accept(2);
+        right.accept(3);
+        right.accept(4);
+        right.accept(5);
+        left.combine(right);
+        test("Streaming combine mean", left.mean(), 3.0);
+        test("Streaming combine variance", left.variance(), 2.0);
+        
+        StreamingStatistics parallel = StreamingStatistics.of(
+            java.util.stream.IntStream.rangeClosed(1, 100000).parallel().asDoubleStream());
+        StatisticalCalculator reference = new StatisticalCalculator(
+            java.util.stream.IntStream.rangeClosed(1, 100000).asDoubleStream().toArray());
+        test("Streaming parallel collect mean", parallel.mean(), reference.mean());
+        test("Streaming parallel collect variance", 
+            parallel.variance(), reference.variance(), 0.001);
+        
+        StreamingStatistics compensated = new StreamingStatistics();
+        compensated.accept(1e16);
+        for (int i = 0; i < 1000; i++) {
+            compensated.accept(1.0);
+        }
+        test("Streaming Kahan sum", compensated.sum(), 1e16 + 1000);
+        
+        testException("Streaming empty mean", 
+            () -> new StreamingStatistics().mean(), 
+            InvalidInputException.class);
+        testException("Streaming NaN value", 
+            () -> new StreamingStatistics().accept(Double.NaN), 
+            InvalidInputException.class);
+    }
+    
+    // ============ PERCENTILE TESTS ============
+    
+    private static void testPercentiles() {
+        System.out.println("\n── Testing Percentiles ──");
+        
+        StatisticalCalculator stats = new StatisticalCalculator(new double[]{7, 1, 5, 3, 9});
+        test("Percentile: 0th", stats.percentile(0), 1.0);
+        test("Percentile: 25th", stats.percentile(25), 3.0);
+        test("Percentile: 100th", stats.percentile(100), 9.0);
+        test("Percentile: 90th (interpolated)", stats.percentile(90), 8.2);
+        test("Median after percentiles", stats.median(), 5.0);
+        
+        double[] large = new double[10001];
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < large.length; i++) {
+            large[i] = random.nextInt(500);
+        }
+        double[] sorted = java.util.Arrays.copyOf(large, large.length);
+        java.util.Arrays.sort(sorted);
+        StatisticalCalculator big = new StatisticalCalculator(large);
+        test("Selection median (duplicates)", big.median(), sorted[5000]);
+        test("Selection 99th percentile", big.percentile(99), sorted[9900]);
+        
+        double[] ps = new double[20];
+        for (int i = 0; i < ps.length; i++) {
+            ps[i] = i * 5;
+        }
+        double[] qs = big.quantiles(ps);
+        boolean allMatch = true;
+        for (int i = 0; i < ps.length; i++) {
+            allMatch &= qs[i] == sorted[i * 500];
+        }
+        test("Quantiles (sorted path)", allMatch, true);
+        test("Quantiles: few values", new StatisticalCalculator(large).quantiles(25, 75)[1], 
+            sorted[7500]);
+        
+        testException("Percentile out of range", 
+            () -> stats.percentile(101), 
+            InvalidInputException.class);
+    }
+    
+    // ============ MODE TESTS ============
+    
+    private static void testModes() {
+        System.out.println("\n── Testing Modes ──");
+        
+        StatisticalCalculator single = new StatisticalCalculator(new double[]{3, 1, 3, 2, 3, 1});
+        test("Mode: single", single.mode(), 3.0);
+        test("Modes: single count", single.modes().length, 1);
+        test("Median after mode (sorted buffer)", single.median(), 2.5);
+        
+        StatisticalCalculator tied = new StatisticalCalculator(new double[]{5, 1, 5, 9, 1, 7});
+        double[] modes = tied.modes();
+        test("Modes: tied count", modes.length, 2);
+        test("Modes: tied ascending", modes[0] == 1.0 && modes[1] == 5.0, true);
+        test("Mode: smallest of tied", tied.mode(), 1.0);
+        
+        StatisticalCalculator unique = new StatisticalCalculator(new double[]{4, 2, 8});
+        test("Modes: all unique", unique.modes().length, 3);
+        test("Mode: all unique returns smallest", unique.mode(), 2.0);
+    }
+    
+    // ============ SUMMARY TESTS ============
+    
+    private static void testSummary() {
+        System.out.println("\n── Testing Summary ──");
+        
+        StatisticalCalculator stats = new StatisticalCalculator(new double[]{2, 4, 4, 4, 5, 5, 7, 9});
+        StreamingStatistics summary = stats.summary();
+        test("Summary count", summary.getCount(), 8L);
+        test("Summary mean", summary.mean(), 5.0);
+        test("Summary variance", summary.variance(), 4.0);
+        test("Summary sum", summary.sum(), 40.0);
+        test("Summary range", summary.range(), 7.0);
+        
+        summary.accept(100);
+        test("Summary copy is independent", stats.mean(), 5.0);
+        test("Cached std dev", stats.standardDeviation(), 2.0);
+        test("Cached median repeat", stats.median() == stats.median(), true);
+        
+        double[] modes = stats.modes();
+        modes[0] = -1;
+        test("Cached modes copy is independent", stats.mode(), 4.0);
+    }
+    
+    // ============ PARALLEL STATISTICS TESTS ============
+    
+    private static void testParallelStatistics() {
+        System.out.println("\n── Testing Parallel Statistics ──");
+        
+        double[] data = new double[300000];
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextGaussian() * 100 + (i % 3 == 0 ? 5000 : 0);
+        }
+        StatisticalCalculator sequential = new StatisticalCalculator(data);
+        StatisticalCalculator parallel = new StatisticalCalculator(data, true);
+        
+        test("Parallel flag", parallel.isParallel(), true);
+        test("Parallel mean", parallel.mean(), sequential.mean(), 1e-9);
+        test("Parallel variance", parallel.variance(), sequential.variance(), 1e-6);
+        test("Parallel min", parallel.min(), sequential.min());
+        test("Parallel max", parallel.max(), sequential.max());
+        test("Parallel median", parallel.median(), sequential.median());
+        test("Parallel 1st percentile", parallel.percentile(1), sequential.percentile(1));
+        test("Parallel 99.9th percentile", parallel.percentile(99.9), sequential.percentile(99.9));
+        
+        double[] constant = new double[100000];
+        java.util.Arrays.fill(constant, 2.5);
+        test("Parallel median (constant data)", 
+            new StatisticalCalculator(constant, true).median(), 2.5);
+        
+        StatisticalCalculator small = new StatisticalCalculator(new double[]{3, 1, 2}, true);
+        test("Parallel median below threshold", small.median(), 2.0);
+    }
+    
+    // ============ MAPPED DATASET TESTS ============
+    
+    private static void testMappedDataset() {
+        System.out.println("\n── Testing Mapped Dataset ──");
+        
+        try {
+            java.nio.file.Path binary = java.nio.file.Files.createTempFile("dataset", ".bin");
+            binary.toFile().deleteOnExit();
+            java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(8 * Double.BYTES)
+                .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+            for (double value : new double[]{2, 4, 4, 4, 5, 5, 7, 9}) {
+                buffer.putDouble(value);
+            }
+            java.nio.file.Files.write(binary, buffer.array());
+            
+            MappedDataset dataset = MappedDataset.open(binary);
+            test("Mapped size", dataset.size(), 8L);
+            test("Mapped get", dataset.get(7), 9.0);
+            test("Mapped summary mean", dataset.summary().mean(), 5.0);
+            test("Mapped summary std dev", dataset.summary().standardDeviation(), 2.0);
+            
+            test("Mapped parallel summary mean", dataset.summary(true).mean(), 5.0);
+            test("Mapped parallel summary max", dataset.summary(true).max(), 9.0);
+            
+            StatisticalCalculator stats = StatisticalCalculator.fromBinaryFile(binary, false);
+            test("Binary file median", stats.median(), 4.5);
+            test("Binary file mode", stats.mode(), 4.0);
+            test("Binary file mean after in-place sort", stats.mean(), 5.0);
+            test("Binary file median after mode", stats.median(), 4.5);
+            
+            java.nio.file.Path csv = java.nio.file.Files.createTempFile("dataset", ".csv");
+            csv.toFile().deleteOnExit();
+            java.nio.file.Files.write(csv, java.util.List.of("id,value", "1,10", "2,20", "", "3,30"));
+            StreamingStatistics column = MappedDataset.summarizeColumn(csv, 1);
+            test("CSV column count", column.getCount(), 3L);
+            test("CSV column mean", column.mean(), 20.0);
+            
+            java.nio.file.Path badCsv = java.nio.file.Files.createTempFile("dataset", ".csv");
+            badCsv.toFile().deleteOnExit();
+            java.nio.file.Files.write(badCsv, java.util.List.of("id,value", "1,10", "2,n/a", "3,30"));
+            testException("CSV unparsable row", 
+                () -> MappedDataset.summarizeColumn(badCsv, 1), 
+                InvalidInputException.class);
+            
+            java.nio.file.Path truncated = java.nio.file.Files.createTempFile("dataset", ".bin");
+            truncated.toFile().deleteOnExit();
+            java.nio.file.Files.write(truncated, new byte[12]);
+            testException("Mapped truncated file", 
+                () -> MappedDataset.open(truncated), 
+                InvalidInputException.class);
+        } catch (java.io.IOException e) {
+            test("Mapped dataset temp files", false, true);
+        }
+    }
+    
+    // ============ HISTORY LOG TESTS ============
+    
+    private static void testHistoryLog() {
+        System.out.println("\n── Testing History Log ──");
+        
+        try {
+            java.nio.file.Path file = java.nio.file.Files.createTempFile("history", ".log");
+            file.toFile().deleteOnExit();
+            
+            HistoryManager history = HistoryManager.open(file, 1000, 64);
+            for (int i = 0; i < 5000; i++) {
+                history.addEntry("op " + i, i);
+            }
+            history.close();
+            
+            HistoryManager restored = HistoryManager.open(file, 10, 0);
+            test("Log replay size", restored.size(), 10);
+            test("Log replay oldest", restored.getEntry(0).getResult(), 4990.0);
+            test("Log replay newest", restored.getEntry(9).getResult(), 4999.0);
+            test("Log replay operation", 
+                restored.getEntry(9).getOperation().equals("op 4999"), true);
+            
+            restored.addEntry("after restart", 42);
+            restored.close();
+            
+            long size = java.nio.file.Files.size(file);
+            try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+                    file, java.nio.file.StandardOpenOption.WRITE)) {
+                channel.truncate(size - 5);
+            }
+            HistoryManager recovered = HistoryManager.open(file, 3, 1);
+            test("Log torn record dropped", recovered.getEntry(2).getResult(), 4999.0);
+            
+            recovered.clearHistory();
+            recovered.close();
+            HistoryManager cleared = HistoryManager.open(file, 3, 1);
+            test("Log cleared", cleared.size(), 0);
+            cleared.close();
+        } catch (java.io.IOException e) {
+            test("History log temp files", false, true);
+        }
+    }
+    
+    // ============ CONCURRENT HISTORY TESTS ============
+    
+    private static void testConcurrentHistory() {
+        System.out.println("\n── Testing Concurrent History ──");
+        
+        HistoryManager history = new HistoryManager(1000);
+        String[] operations = {"op0", "op1", "op2", "op3"};
+        int perThread = 50000;
+        Thread[] writers = new Thread[operations.length];
+        for (int t = 0; t < writers.length; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    history.addEntry(operations[id], id);
+                }
+            });
+            writers[t].start();
+        }
+        
+        boolean consistent = true;
+        for (int round = 0; round < 200; round++) {
+            for (HistoryManager.HistoryEntry entry : history.snapshot()) {
+                consistent &= entry.getOperation().equals("op" + (int) entry.getResult());
+            }
+        }
+        
+        try {
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        test("Concurrent snapshots consistent", consistent, true);
+        test("Concurrent history size", history.size(), 1000);
+        test("Concurrent snapshot size", history.snapshot().size(), 1000);
+    }
+    
+    // ============ HISTORY RENDERING TESTS ============
+    
+    private static void testHistoryRendering() {
+        System.out.println("\n── Testing History Rendering ──");
+        
+        HistoryManager history = new HistoryManager(50);
+        double[] results = {8, -0.0000004, 1234567.891, 2.0 / 3, -42.5};
+        for (int i = 0; i < results.length; i++) {
+            history.addEntry("op" + i, results[i]);
+        }
+        
+        StringBuilder page = new StringBuilder();
+        int written = history.render(1, 3, page);
+        test("Render page count", written, 3);
+        
+        String[] lines = page.toString().split(System.lineSeparator());
+        HistoryManager.HistoryEntry second = history.getEntry(1);
+        String expected = String.format("[2] %-30s = %-15.6f [%s]", second.getOperation(), 
+            second.getResult(), second.getTimestamp().format(
+                java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        test("Render line matches String.format", lines[0].equals(expected), true);
+        test("Render numbering", lines[2].startsWith("[4] op3"), true);
+        test("Entry toString matches render", 
+            lines[1].equals("[3] " + history.getEntry(2).toString()), true);
+        
+        StringBuilder tail = new StringBuilder();
+        test("Render past end", history.render(4, 10, tail), 1);
+        test("Render empty page", history.render(10, 10, new StringBuilder()), 0);
+    }
+    
+    // ============ HISTORY QUERY TESTS ============
+    
+    private static void testHistoryQueries() {
+        System.out.println("\n── Testing History Queries ──");
+        
+        HistoryManager history = new HistoryManager(6, true);
+        history.addEntry("10.0 ÷ 2.0", 5.0);
+        history.addEntry("1.0 + 1.0", 2.0);
+        history.addEntry("9.0 ÷ 3.0", 3.0);
+        history.addEntry("sin(30.0°)", 0.5);
+        history.addEntry(OperationType.DIVISION, "custom", 7.0);
+        
+        test("Query by operation", history.findByOperation(OperationType.DIVISION).size(), 3);
+        test("Query by operation order", 
+            history.findByOperation(OperationType.DIVISION).get(1).getResult(), 3.0);
+        test("Query classified sine", history.findByOperation(OperationType.SINE).size(), 1);
+        
+        java.util.List<HistoryManager.HistoryEntry> mid = history.findByResult(2.0, 5.0);
+        test("Query by result range", mid.size(), 3);
+        test("Query by result order", mid.get(0).getResult(), 2.0);
+        
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+        test("Query last hour", 
+            history.findByTime(now.minusHours(1), now.plusMinutes(1)).size(), 5);
+        test("Query future window", 
+            history.findByTime(now.plusHours(1), now.plusHours(2)).size(), 0);
+        test("Query divisions in last hour", history.findByOperation(OperationType.DIVISION, 
+            now.minusHours(1), now.plusMinutes(1)).size(), 3);
+        
+        // Evict the first division and the addition
+        history.addEntry("2.0 × 2.0", 4.0);
+        history.addEntry("3.0 × 3.0", 9.0);
+        history.addEntry("4.0 × 4.0", 16.0);
+        test("Query after eviction", history.findByOperation(OperationType.DIVISION).size(), 2);
+        test("Result index after eviction", history.findByResult(5.0, 5.0).size(), 0);
+        test("Result index new entries", history.findByResult(4.0, 20.0).size(), 4);
+        
+        history.clearHistory();
+        test("Query after clear", history.findByOperation(OperationType.MULTIPLICATION).size(), 0);
+        history.addEntry("5.0 × 5.0", 25.0);
+        test("Query after clear and add", 
+            history.findByOperation(OperationType.MULTIPLICATION).size(), 1);
+        
+        testException("Query without index", 
+            () -> new HistoryManager(5).findByResult(0, 1), 
+            InvalidInputException.class);
+    }
+    
+    // ============ PREALLOCATED ERROR TESTS ============
+    
+    private static void testPreallocatedErrors() {
+        System.out.println("\n── Testing Preallocated Errors ──");
+        
+        CalculatorEngine fast = new CalculatorEngine(true);
+        test("Fast engine divide", fast.divide(10, 4), 2.5);
+        testException("Fast engine division by zero", () -> fast.divide(1, 0), 
+            DivisionByZeroException.class);
+        testException("Fast engine NaN operand", () -> fast.add(Double.NaN, 1), 
+            InvalidOperationException.class);
+        testException("Fast engine overflow", () -> fast.multiply(1e200, 1e200), 
+            OverflowException.class);
+        
+        CalculatorException first = null;
+        CalculatorException second = null;
+        try {
+            fast.modulo(5, 0);
+        } catch (CalculatorException e) {
+            first = e;
+        }
+        try {
+            fast.modulo(7, 0);
+        } catch (CalculatorException e) {
+            second = e;
+        }
+        test("Shared instance reused", first != null && first == second, true);
+        test("Shared instance has no stack trace", first.getStackTrace().length, 0);
+        first.addSuppressed(new RuntimeException());
+        test("Shared instance ignores suppression", first.getSuppressed().length, 0);
+        
+        InvalidInputException stackless = new InvalidInputException("bad", false);
+        test("Stackless constructor", stackless.getStackTrace().length, 0);
+        test("Default engine keeps stack traces", 
+            new InvalidInputException("bad").getStackTrace().length > 0, true);
+        
+        CalculatorEngine engine = new CalculatorEngine();
+        test("tryDivide value", engine.tryDivide(9, 3).getAsDouble(), 3.0);
+        test("tryDivide by zero", engine.tryDivide(9, 0).isPresent(), false);
+        test("tryAdd NaN", engine.tryAdd(Double.NaN, 1).isPresent(), false);
+        test("tryMultiply overflow", engine.tryMultiply(1e200, 1e200).isPresent(), false);
+        test("tryAdd overflow", engine.tryAdd(Double.MAX_VALUE, Double.MAX_VALUE).isPresent(), false);
+        test("tryModulo value", engine.tryModulo(10, 3).getAsDouble(), 1.0);
+        test("tryPower negative base", engine.tryPower(-8, 0.5).isPresent(), false);
+        test("tryPower value", engine.tryPower(2, 10).getAsDouble(), 1024.0);
+        test("trySquareRoot negative", engine.trySquareRoot(-4).isPresent(), false);
+        test("tryLogarithm value", engine.tryLogarithm(1000).getAsDouble(), 3.0);
+        test("tryNaturalLog zero", engine.tryNaturalLog(0).isPresent(), false);
+        test("Status of divide by zero", CalculatorEngine.statusOfDivide(1, 0), 
+            CalculatorEngine.STATUS_DIVISION_BY_ZERO);
+        test("Status of invalid divide", CalculatorEngine.statusOfDivide(Double.NaN, 0), 
+            CalculatorEngine.STATUS_INVALID_OPERAND);
+        test("Status of power overflow", CalculatorEngine.statusOfPower(10, 400), 
+            CalculatorEngine.STATUS_OVERFLOW);
+        test("Status of power ok", CalculatorEngine.statusOfPower(2, 3), 
+            CalculatorEngine.STATUS_OK);
+    }
+    
+    // ============ PRECISION ENGINE TESTS ============
+    
+    private static void testPrecisionEngine() {
+        System.out.println("\n── Testing Precision Engine ──");
+        
+        PrecisionEngine precise = new PrecisionEngine();
+        test("Big factorial 20 matches long", 
+            precise.factorial(20).longValueExact(), new CalculatorEngine().factorial(20));
+        test("Big factorial 25", precise.factorial(25).toString()
+            .equals("15511210043330985984000000"), true);
+        
+        java.math.BigInteger expected = java.math.BigInteger.ONE;
+        for (int i = 2; i <= 3000; i++) {
+            expected = expected.multiply(java.math.BigInteger.valueOf(i));
+        }
+        test("Big factorial 3000 (binary splitting)", precise.factorial(3000).equals(expected), true);
+        test("Big factorial extends cache", precise.factorial(3001)
+            .equals(expected.multiply(java.math.BigInteger.valueOf(3001))), true);
+        test("Big factorial cached", precise.factorial(3000) == precise.factorial(3000), true);
+        test("Big factorial 10000 digits", precise.factorial(10000).toString().length(), 35660);
+        test("Big factorial beyond cache", precise.factorial(10001)
+            .equals(precise.factorial(10000).multiply(java.math.BigInteger.valueOf(10001))), true);
+        testException("Big factorial negative", () -> precise.factorial(-1), 
+            InvalidOperationException.class);
+        
+        java.math.BigDecimal base = new java.math.BigDecimal("1.01");
+        test("Decimal power rounding", precise.power(base, 1000).equals(
+            base.pow(1000).round(java.math.MathContext.DECIMAL128)), true);
+        test("Decimal negative power", 
+            precise.power(new java.math.BigDecimal("2"), -3).doubleValue(), 0.125);
+        test("Decimal zero power", precise.power(base, 0).intValue(), 1);
+        testException("Zero to negative power", 
+            () -> precise.power(java.math.BigDecimal.ZERO, -1), DivisionByZeroException.class);
+        test("Integer power", precise.power(java.math.BigInteger.TEN, 40).toString().length(), 41);
+        
+        PrecisionEngine exact = new PrecisionEngine(java.math.MathContext.UNLIMITED);
+        test("Exact decimal power", 
+            exact.power(new java.math.BigDecimal("1.1"), 10).toPlainString()
+                .equals("2.5937424601"), true);
+        test("Exact add", exact.add(new java.math.BigDecimal("0.1"), new java.math.BigDecimal("0.2"))
+            .compareTo(new java.math.BigDecimal("0.3")), 0);
+        testException("Exact non-terminating divide", 
+            () -> exact.divide(java.math.BigDecimal.ONE, new java.math.BigDecimal("3")), 
+            InvalidOperationException.class);
+        test("Bounded divide", precise.divide(java.math.BigDecimal.ONE, new java.math.BigDecimal("3"))
+            .precision(), 34);
+        testException("Big divide by zero", 
+            () -> precise.divide(java.math.BigDecimal.ONE, java.math.BigDecimal.ZERO), 
+            DivisionByZeroException.class);
+        test("Big square root", precise.squareRoot(new java.math.BigDecimal("2"))
+            .toString().startsWith("1.414213562373095048801688724209"), true);
+    }
+    
+    // ============ CACHED ENGINE TESTS ============
+    
+    private static void testCachedEngine() {
+        System.out.println("\n── Testing Cached Engine ──");
+        
+        CachedCalculatorEngine cached = new CachedCalculatorEngine(4);
+        test("Cached power", cached.power(2, 10), 1024.0);
+        test("Cached power repeat", cached.power(2, 10), 1024.0);
+        test("Cache hit counted", cached.getHitCount(), 1L);
+        test("Cache miss counted", cached.getMissCount(), 1L);
+        test("Cached sine", cached.sine(30), 0.5);
+        test("Cached cosine distinct key", cached.cosine(30), Math.cos(Math.toRadians(30)));
+        test("Operation is part of key", cached.getCacheSize(), 3);
+        test("Cached log", cached.logarithm(100), 2.0);
+        cached.naturalLog(Math.E);
+        test("Cache bounded", cached.getCacheSize(), 4);
+        test("Cache evicted", cached.getEvictionCount(), 1L);
+        test("Referenced entry survives eviction", cached.power(2, 10), 1024.0);
+        test("Referenced entry hit", cached.getHitCount(), 2L);
+        
+        testException("Cached engine still validates", () -> cached.logarithm(-1), 
+            InvalidOperationException.class);
+        testException("Cached tangent asymptote", () -> cached.tangent(90), 
+            InvalidOperationException.class);
+        
+        cached.clearCache();
+        test("Cache cleared", cached.getCacheSize(), 0);
+        test("Counters reset", cached.getHitCount() + cached.getMissCount(), 0L);
+        
+        CachedCalculatorEngine large = new CachedCalculatorEngine(256);
+        CalculatorEngine plain = new CalculatorEngine();
+        boolean matches = true;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 1; i <= 500; i++) {
+                matches &= large.naturalLog(i) == plain.naturalLog(i);
+                matches &= large.power(1.5, i % 50) == plain.power(1.5, i % 50);
+            }
+        }
+        test("Cached results match engine", matches, true);
+        test("Cache size capped", large.getCacheSize(), 256);
+        test("Hot keys hit", large.getHitRate() > 0.2, true);
+        testException("Invalid cache capacity", () -> new CachedCalculatorEngine(0), 
+            InvalidInputException.class);
+    }
+    
+    // ============ DEGREE TRIGONOMETRY TESTS ============
+    
+    private static void testDegreeTrig() {
+        System.out.println("\n── Testing Degree Trigonometry ──");
+        
+        test("Default trig mode", new CalculatorEngine().getTrigMode() == TrigMode.RADIANS, true);
+        CalculatorEngine exact = new CalculatorEngine(false, TrigMode.EXACT_DEGREES);
+        test("sin(180) exactly zero", exact.sine(180) == 0.0, true);
+        test("cos(90) exactly zero", exact.cosine(90) == 0.0, true);
+        test("cos(60) exactly 0.5", exact.cosine(60) == 0.5, true);
+        test("sin(-30) exactly -0.5", exact.sine(-30) == -0.5, true);
+        test("sin(135) exact", exact.sine(135) == Math.sqrt(0.5), true);
+        test("tan(45) exactly one", exact.tangent(45) == 1.0, true);
+        test("tan(-135) exactly one", exact.tangent(-135) == 1.0, true);
+        test("tan(60) exact", exact.tangent(60) == Math.sqrt(3), true);
+        test("sin(360k + 30) exact reduction", exact.sine(1_000_000_110.0) == 0.5, true);
+        test("sin(37.5)", exact.sine(37.5), Math.sin(Math.toRadians(37.5)), 1e-15);
+        test("cos(-200.25)", exact.cosine(-200.25), Math.cos(Math.toRadians(-200.25)), 1e-15);
+        test("tan(100)", exact.tangent(100), Math.tan(Math.toRadians(100)), 1e-14);
+        testException("Exact tangent asymptote", () -> exact.tangent(270), 
+            InvalidOperationException.class);
+        testException("Exact tangent asymptote at -1e16 + 10", () -> exact.tangent(-1e16 + 10), 
+            InvalidOperationException.class);
+        test("Exact tangent 1e-11 from asymptote", Double.isFinite(exact.tangent(90 + 1e-11)), true);
+        
+        CalculatorEngine table = new CalculatorEngine(false, TrigMode.TABLE);
+        java.util.Random random = new java.util.Random(17);
+        double worst = 0;
+        for (int i = 0; i < 100000; i++) {
+            double angle = (random.nextDouble() - 0.5) * 2000;
+            worst = Math.max(worst, Math.abs(table.sine(angle) - Math.sin(Math.toRadians(angle))));
+            worst = Math.max(worst, Math.abs(table.cosine(angle) - Math.cos(Math.toRadians(angle))));
+        }
+        test("Table error within bound", worst < 1e-12, true);
+        test("Table exact at special angles", 
+            table.sine(210) == -0.5 && table.cosine(-45) == Math.sqrt(0.5), true);
+        test("Table sin(360) zero", table.sine(360) == 0.0, true);
+        test("Table tan(180) zero", table.tangent(180) == 0.0, true);
+        testException("Table tangent asymptote", () -> table.tangent(90), 
+            InvalidOperationException.class);
+        test("Table tan(20)", table.tangent(20), Math.tan(Math.toRadians(20)), 1e-11);
+        test("Table tiny negative angle", table.sine(-1e-20), 0.0, 1e-15);
+        
+        CalculatorEngine radians = new CalculatorEngine(false, TrigMode.RADIANS);
+        test("Radians mode unchanged", radians.sine(30) == Math.sin(Math.toRadians(30)), true);
+        testException("Null trig mode", () -> new CalculatorEngine(false, null), 
+            InvalidInputException.class);
+    }
+    
+    // ============ BATCH MODE TESTS ============
+    
+    private static void testScriptRunner() {
+        System.out.println("\n── Testing Batch Mode ──");
+        
+        ScriptRunner runner = new ScriptRunner();
+        String output = runScript(runner, 
+            "add 1 2\nmul 2.5 4\n# comment\n\n  pow 2 10  \nsqrt -4\nfact 5\r\n");
+        test("Batch results", 
+            output.equals("3.000000\n10.000000\n1024.000000\n"
+                + "error (line 6): Cannot calculate square root of negative number\n120.000000\n"), 
+            true);
+        test("Batch operation count", runner.getOperationCount(), 5L);
+        test("Batch error count", runner.getErrorCount(), 1L);
+        
+        test("Batch trig in degrees", runScript(new ScriptRunner(), "sin 30\ncos 60").equals(
+            "0.500000\n0.500000\n"), true);
+        test("Batch expression", runScript(new ScriptRunner(), "eval 2 * (3 + 4)\n").equals(
+            "14.000000\n"), true);
+        test("Batch inline stats", runScript(new ScriptRunner(), "stats 1 2 3 4\n").startsWith(
+            "count=4 mean=2.500000 median=2.500000"), true);
+        test("Batch scientific notation", runScript(new ScriptRunner(), "add 1e3 -2.5E-1\n").equals(
+            "999.750000\n"), true);
+        
+        String errors = runScript(new ScriptRunner(), "foo 1\nadd 1\nadd 1 x\ndiv 1 0\n");
+        test("Batch error lines", errors.equals("error (line 1): Unknown command\n"
+            + "error (line 2): Wrong number of arguments\n"
+            + "error (line 3): Invalid number\n"
+            + "error (line 4): Cannot divide by zero\n"), true);
+        
+        test("Batch factorial needs a whole number", runScript(new ScriptRunner(),
+            "fact 5.5\nfact 1e12\nfact 5.0\n").equals(
+            "error (line 1): Factorial needs a whole number\n"
+            + "error (line 2): Factorial argument out of range\n120.000000\n"), true);
+        
+        // Enough lines to cross several input and output buffer boundaries
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            script.append("add ").append(i).append(" 0.5\n");
+        }
+        String bulk = runScript(new ScriptRunner(), script.toString());
+        String[] lines = bulk.split("\n");
+        test("Batch bulk line count", lines.length, 20000);
+        test("Batch bulk last line", lines[19999].equals("19999.500000"), true);
+        
+        String longLine = "add " + "0".repeat(100000) + "1 1\n";
+        test("Batch line longer than buffer", runScript(new ScriptRunner(), longLine).equals(
+            "2.000000\n"), true);
+    }
+    
+    private static String runScript(ScriptRunner runner, String script) {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        try {
+            runner.run(new java.io.ByteArrayInputStream(
+                script.getBytes(java.nio.charset.StandardCharsets.UTF_8)), out);
+        } catch (java.io.IOException e) {
+            return "IOException: " + e.getMessage();
+        }
+        return out.toString(java.nio.charset.StandardCharsets.UTF_8);
+    }
+    
+    // ============ NETWORK SERVICE TESTS ============
+    
+    private static void testCalculatorService() {
+        System.out.println("\n── Testing Calculator Service ──");
+        
+        HistoryManager history = new HistoryManager(1000, true);
+        try (CalculatorServer server = new CalculatorServer(0, 2, history);
+             CalculatorClient client = new CalculatorClient("127.0.0.1", server.getPort())) {
+            test("Service add", client.add(2, 3), 5.0);
+            test("Service sin(30°)", client.sine(30), 0.5);
+            test("Service factorial", client.factorial(10), 3628800.0);
+            testException("Service division by zero", () -> client.divide(1, 0), 
+                DivisionByZeroException.class);
+            testException("Service square root of negative", () -> client.squareRoot(-4), 
+                InvalidOperationException.class);
+            test("Service usable after error", client.multiply(6, 7), 42.0);
+            test("Service history recorded", client.history(10).contains("2.0 + 3.0"), true);
+            
+            // Pipelined: queue everything, then read the results back in order
+            boolean ordered = true;
+            for (int i = 0; i < 10000; i++) {
+                client.send(CalculatorProtocol.OP_ADD, i, 0.5);
+            }
+            testException("Blocking call with pipelined requests pending", () -> client.add(1, 1), 
+                InvalidOperationException.class);
+            for (int i = 0; i < 10000; i++) {
+                ordered &= client.receive() == i + 0.5;
+            }
+            test("Service pipelined results in order", ordered, true);
+            test("Service nothing pending", client.getPendingCount(), 0);
+            
+            double[] a = {10, 20, 30};
+            double[] b = {2, 0, 3};
+            double[] results = new double[3];
+            byte[] status = new byte[3];
+            test("Service batch failures", client.batch(CalculatorProtocol.OP_DIVIDE, a, b, results, status), 1);
+            test("Service batch results", results[0] == 5 && Double.isNaN(results[1]) && results[2] == 10, true);
+            test("Service batch status", status[1], (int) CalculatorEngine.STATUS_DIVISION_BY_ZERO);
+            
+            // A NaN operand gets the same status whether sent alone or in a batch
+            testException("Service NaN operand", () -> client.add(Double.NaN, 1), 
+                InvalidInputException.class);
+            client.batch(CalculatorProtocol.OP_ADD, new double[]{Double.NaN}, new double[]{1}, results, status);
+            test("Service batch NaN operand status", status[0], (int) CalculatorEngine.STATUS_INVALID_OPERAND);
+            
+            double[] summary = client.statistics(1, 2, 2, 3);
+            test("Service statistics mean", summary[0], 2.0);
+            test("Service statistics max", summary[5], 3.0);
+            testException("Service statistics of nothing", () -> client.statistics(), 
+                InvalidInputException.class);
+            
+            // Several connections writing to the one history
+            Thread[] clients = new Thread[4];
+            boolean[] correct = new boolean[clients.length];
+            for (int t = 0; t < clients.length; t++) {
+                int id = t;
+                clients[t] = new Thread(() -> {
+                    try (CalculatorClient own = new CalculatorClient("127.0.0.1", server.getPort())) {
+                        boolean ok = true;
+                        for (int i = 0; i < 500; i++) {
+                            ok &= own.multiply(id, i) == id * i;
+                        }
+                        correct[id] = ok;
+                    }
+                });
+                clients[t].start();
+            }
+            boolean allCorrect = true;
+            try {
+                for (int t = 0; t < clients.length; t++) {
+                    clients[t].join();
+                    allCorrect &= correct[t];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            test("Service concurrent clients", allCorrect, true);
+            test("Service shared history", history.findByOperation(OperationType.MULTIPLICATION).size(), 1000);
+            test("Service request count", server.getRequestCount() >= 12000, true);
+        }
+    }
+    
     // ============ HELPER METHODS ============
     
     private static void test(String description, double actual, double expected) {
@@ -9,6 +9,15 @@ class CalculatorException extends RuntimeException {
     public CalculatorException(String message, Throwable cause) {
         super(message, cause);
     }
+    
+    /**
+     * With writableStackTrace = false the stack trace is never captured and
+     * suppression is disabled, so the instance holds no mutable state and
+     * can be thrown repeatedly from a shared constant
+     */
+    public CalculatorException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
 }
 
 /**
@@ -18,6 +27,10 @@ class DivisionByZeroException extends CalculatorException {
     public DivisionByZeroException(String message) {
         super(message);
     }
+    
+    public DivisionByZeroException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
 
 /**
@@ -27,6 +40,10 @@ class InvalidOperationException extends CalculatorException {
     public InvalidOperationException(String message) {
         super(message);
     }
+    
+    public InvalidOperationException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
 
 /**
@@ -36,6 +53,10 @@ class InvalidInputException extends CalculatorException {
     public InvalidInputException(String message) {
         super(message);
     }
+    
+    public InvalidInputException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
 
 /**
@@ -45,4 +66,8 @@ class OverflowException extends CalculatorException {
     public OverflowException(String message) {
         super(message);
     }
+    
+    public OverflowException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
\ No newline at end of file
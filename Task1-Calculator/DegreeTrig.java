@@ -0,0 +1,181 @@
+/**
+ * Trigonometry on degree arguments without going through radians first
+ *
+ * The angle is reduced exactly: with k = rint(x / 90), both x and 90k are
+ * multiples of ulp(x) while |x - 90k| <= |x|, so the remainder d is
+ * representable and the subtraction is exact (huge angles are first brought
+ * into range with x % 360, which is also exact). The quadrant k then
+ * selects ±sin or ±cos of d, the only value ever converted to radians.
+ * Remainders of 0, ±30 and ±45 return the correctly rounded constants, so
+ * sin(180) is 0 and cos(60) is 0.5 exactly.
+ *
+ * Table mode skips the library entirely: the angle is reduced to [0, 360)
+ * and evaluated by cubic Hermite interpolation between quarter-degree
+ * nodes, whose values come from the exact path above (so multiples of 30°
+ * and 45° are still exact). With step h = 0.25° the interpolation error is
+ * at most h^4 / 384 * (pi/180)^4 < 1e-12, and tangent = sin / cos is
+ * within 2e-12 / cos^2. The lookup has no data-dependent branches, which
+ * keeps it fast on unordered bulk input.
+ */
+final class DegreeTrig {
+    
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180.0;
+    private static final double SQRT_HALF = 0.7071067811865476;
+    private static final double SQRT3_HALF = 0.8660254037844386;
+    private static final double SQRT3 = 1.7320508075688772;
+    private static final double TAN_30 = 0.5773502691896257;
+    
+    // Below this 90k is an exact integer and the direct reduction applies
+    private static final double DIRECT_REDUCTION_LIMIT = 1e15;
+    
+    // sin at every quarter degree over [0, 540]; cos(x) is read as sin(x + 90),
+    // an exact shift of QUARTER_TURN entries
+    private static final double NODES_PER_DEGREE = 4.0;
+    private static final int QUARTER_TURN = 90 * 4;
+    private static final int FULL_TURN = 360 * 4;
+    private static final double H = RADIANS_PER_DEGREE / NODES_PER_DEGREE;
+    private static final double[] SIN = new double[FULL_TURN + 2 * QUARTER_TURN + 1];
+    
+    static {
+        for (int i = 0; i < SIN.length; i++) {
+            SIN[i] = sin(i / NODES_PER_DEGREE, false);
+        }
+    }
+    
+    private DegreeTrig() {
+    }
+    
+    static double sin(double degrees, boolean table) {
+        if (table) {
+            double position = tablePosition(degrees);
+            int i = (int) position;
+            return interpolate(i, position - i);
+        }
+        double x = Math.abs(degrees) < DIRECT_REDUCTION_LIMIT ? degrees : degrees % 360.0;
+        double k = Math.rint(x / 90.0);
+        double d = x - 90.0 * k;
+        return switch ((int) ((long) k & 3)) {
+            case 0 -> sinReduced(d);
+            case 1 -> cosReduced(d);
+            case 2 -> 0.0 - sinReduced(d);
+            default -> 0.0 - cosReduced(d);
+        };
+    }
+    
+    static double cos(double degrees, boolean table) {
+        if (table) {
+            double position = tablePosition(degrees);
+            int i = (int) position;
+            return interpolate(i + QUARTER_TURN, position - i);
+        }
+        double x = Math.abs(degrees) < DIRECT_REDUCTION_LIMIT ? degrees : degrees % 360.0;
+        double k = Math.rint(x / 90.0);
+        double d = x - 90.0 * k;
+        return switch ((int) ((long) k & 3)) {
+            case 0 -> cosReduced(d);
+            case 1 -> 0.0 - sinReduced(d);
+            case 2 -> 0.0 - cosReduced(d);
+            default -> sinReduced(d);
+        };
+    }
+    
+    /**
+     * NaN at the asymptotes (odd multiples of 90°)
+     */
+    static double tan(double degrees, boolean table) {
+        if (table) {
+            double position = tablePosition(degrees);
+            int i = (int) position;
+            double t = position - i;
+            double cos = interpolate(i + QUARTER_TURN, t);
+            // + 0.0 turns the -0.0 of tan(180) into 0.0
+            return cos == 0 ? Double.NaN : interpolate(i, t) / cos + 0.0;
+        }
+        double x = Math.abs(degrees) < DIRECT_REDUCTION_LIMIT ? degrees : degrees % 180.0;
+        double k = Math.rint(x / 90.0);
+        double d = x - 90.0 * k;
+        double magnitude = Math.abs(d);
+        
+        if (((long) k & 1) == 0) {
+            // tan(180k + d) = tan(d)
+            if (d == 0) {
+                return 0.0;
+            }
+            if (magnitude == 30.0) {
+                return Math.copySign(TAN_30, d);
+            }
+            if (magnitude == 45.0) {
+                return Math.copySign(1.0, d);
+            }
+            return Math.tan(d * RADIANS_PER_DEGREE);
+        }
+        
+        // tan(90 + d) = -cot(d)
+        if (d == 0) {
+            return Double.NaN;
+        }
+        if (magnitude == 30.0) {
+            return Math.copySign(SQRT3, -d);
+        }
+        if (magnitude == 45.0) {
+            return Math.copySign(1.0, -d);
+        }
+        return -1.0 / Math.tan(d * RADIANS_PER_DEGREE);
+    }
+    
+    /**
+     * sin(d) for |d| <= 45 (plus rounding slack)
+     */
+    private static double sinReduced(double d) {
+        double magnitude = Math.abs(d);
+        if (d == 0) {
+            return 0.0;
+        }
+        if (magnitude == 30.0) {
+            return Math.copySign(0.5, d);
+        }
+        if (magnitude == 45.0) {
+            return Math.copySign(SQRT_HALF, d);
+        }
+        return Math.sin(d * RADIANS_PER_DEGREE);
+    }
+    
+    private static double cosReduced(double d) {
+        double magnitude = Math.abs(d);
+        if (d == 0) {
+            return 1.0;
+        }
+        if (magnitude == 30.0) {
+            return SQRT3_HALF;
+        }
+        if (magnitude == 45.0) {
+            return SQRT_HALF;
+        }
+        return Math.cos(d * RADIANS_PER_DEGREE);
+    }
+    
+    /**
+     * Table index of the angle reduced to [0, 360), as a real number
+     */
+    private static double tablePosition(double degrees) {
+        double x = Math.abs(degrees) < DIRECT_REDUCTION_LIMIT ? degrees : degrees % 360.0;
+        double position = (x - 360.0 * Math.floor(x / 360.0)) * NODES_PER_DEGREE;
+        // A tiny negative x rounds up to exactly 360
+        return position < FULL_TURN ? position : 0.0;
+    }
+    
+    /**
+     * Cubic Hermite interpolation between nodes i and i + 1 at fraction t,
+     * using the node values and their derivatives (the entries a quarter
+     * turn ahead)
+     */
+    private static double interpolate(int i, double t) {
+        double u = 1.0 - t;
+        double f0 = SIN[i];
+        double f1 = SIN[i + 1];
+        double slope0 = SIN[i + QUARTER_TURN] * H;
+        double slope1 = SIN[i + 1 + QUARTER_TURN] * H;
+        return u * u * ((1 + 2 * t) * f0 + t * slope0)
+            + t * t * ((3 - 2 * t) * f1 - u * slope1);
+    }
+}
\ No newline at end of file
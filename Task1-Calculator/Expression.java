@@ -0,0 +1,437 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiled arithmetic expression evaluated with CalculatorEngine semantics
+ * Parses once into an evaluator tree; evaluation only walks the tree
+ *
+ * Supported syntax: numbers, variables, + - * / % ^, unary minus,
+ * parentheses, constants pi and e, and the functions
+ * sqrt, abs, sin, cos, tan (degrees), log, ln, fact
+ */
+public class Expression {
+    
+    private final String source;
+    private final Node root;
+    private final List<String> variables;
+    
+    private Expression(String source, Node root, List<String> variables) {
+        this.source = source;
+        this.root = root;
+        this.variables = Collections.unmodifiableList(variables);
+    }
+    
+    /**
+     * Compile an expression using a fresh CalculatorEngine
+     */
+    public static Expression compile(String source) {
+        return compile(source, new CalculatorEngine());
+    }
+    
+    /**
+     * Compile an expression whose operations run through the given engine
+     */
+    public static Expression compile(String source, CalculatorEngine engine) {
+        if (source == null || source.trim().isEmpty()) {
+            throw new InvalidInputException("Expression cannot be null or empty");
+        }
+        if (engine == null) {
+            throw new InvalidInputException("Engine cannot be null");
+        }
+        Parser parser = new Parser(source, engine);
+        Node root = parser.parse();
+        return new Expression(source, root, parser.variables);
+    }
+    
+    /**
+     * Evaluate with variable values given in the order of getVariables()
+     * The bindings array is read directly and may be reused between calls
+     */
+    public double evaluate(double[] bindings) {
+        int needed = variables.size();
+        if (needed > 0 && (bindings == null || bindings.length < needed)) {
+            throw new InvalidInputException(
+                "Expression needs " + needed + " variable value(s): " + variables);
+        }
+        return root.eval(bindings);
+    }
+    
+    /**
+     * Evaluate an expression that has no variables
+     */
+    public double evaluate() {
+        return evaluate(null);
+    }
+    
+    /**
+     * Slot of a variable in the bindings array, or -1 if unused
+     */
+    public int indexOf(String variable) {
+        return variables.indexOf(variable);
+    }
+    
+    /**
+     * Variable names in binding order (order of first appearance)
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    @Override
+    public String toString() {
+        return source;
+    }
+    
+    // ============ EVALUATOR TREE ============
+    
+    private abstract static class Node {
+        abstract double eval(double[] vars);
+        
+        boolean isConstant() {
+            return false;
+        }
+    }
+    
+    private static final class Constant extends Node {
+        private final double value;
+        
+        Constant(double value) {
+            this.value = value;
+        }
+        
+        @Override
+        double eval(double[] vars) {
+            return value;
+        }
+        
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+    
+    private static final class Variable extends Node {
+        private final int slot;
+        
+        Variable(int slot) {
+            this.slot = slot;
+        }
+        
+        @Override
+        double eval(double[] vars) {
+            return vars[slot];
+        }
+    }
+    
+    private static final class Binary extends Node {
+        private final char op;
+        private final Node left;
+        private final Node right;
+        private final CalculatorEngine engine;
+        
+        Binary(char op, Node left, Node right, CalculatorEngine engine) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            this.engine = engine;
+        }
+        
+        @Override
+        double eval(double[] vars) {
+            double a = left.eval(vars);
+            double b = right.eval(vars);
+            switch (op) {
+                case '+': return engine.add(a, b);
+                case '-': return engine.subtract(a, b);
+                case '*': return engine.multiply(a, b);
+                case '/': return engine.divide(a, b);
+                case '%': return engine.modulo(a, b);
+                case '^': return engine.power(a, b);
+                default: throw new IllegalStateException("Unknown operator: " + op);
+            }
+        }
+    }
+    
+    private static final class Negate extends Node {
+        private final Node operand;
+        
+        Negate(Node operand) {
+            this.operand = operand;
+        }
+        
+        @Override
+        double eval(double[] vars) {
+            return -operand.eval(vars);
+        }
+    }
+    
+    private static final class Function extends Node {
+        private final int function;
+        private final Node argument;
+        private final CalculatorEngine engine;
+        
+        Function(int function, Node argument, CalculatorEngine engine) {
+            this.function = function;
+            this.argument = argument;
+            this.engine = engine;
+        }
+        
+        @Override
+        double eval(double[] vars) {
+            double x = argument.eval(vars);
+            switch (function) {
+                case SQRT: return engine.squareRoot(x);
+                case ABS: return engine.absolute(x);
+                case SIN: return engine.sine(x);
+                case COS: return engine.cosine(x);
+                case TAN: return engine.tangent(x);
+                case LOG: return engine.logarithm(x);
+                case LN: return engine.naturalLog(x);
+                case FACT: return factorial(x);
+                default: throw new IllegalStateException("Unknown function: " + function);
+            }
+        }
+        
+        private double factorial(double x) {
+            if (x != Math.rint(x)) {
+                throw new InvalidOperationException(
+                    "Factorial is only defined for non-negative integers");
+            }
+            return engine.factorial((int) Math.max(-1, Math.min(x, Integer.MAX_VALUE)));
+        }
+    }
+    
+    private static final int SQRT = 0;
+    private static final int ABS = 1;
+    private static final int SIN = 2;
+    private static final int COS = 3;
+    private static final int TAN = 4;
+    private static final int LOG = 5;
+    private static final int LN = 6;
+    private static final int FACT = 7;
+    
+    private static int functionId(String name) {
+        switch (name) {
+            case "sqrt": return SQRT;
+            case "abs": return ABS;
+            case "sin": return SIN;
+            case "cos": return COS;
+            case "tan": return TAN;
+            case "log": return LOG;
+            case "ln": return LN;
+            case "fact": return FACT;
+            default: return -1;
+        }
+    }
+    
+    // ============ PARSER ============
+    
+    /**
+     * Recursive-descent parser
+     *   expr    := term (('+' | '-') term)*
+     *   term    := unary (('*' | '/' | '%') unary)*
+     *   unary   := ('-' | '+') unary | power
+     *   power   := primary ('^' unary)?
+     *   primary := number | name | name '(' expr ')' | '(' expr ')'
+     */
+    private static final class Parser {
+        private final String text;
+        private final CalculatorEngine engine;
+        private final List<String> variables = new ArrayList<>();
+        private int pos;
+        
+        Parser(String text, CalculatorEngine engine) {
+            this.text = text;
+            this.engine = engine;
+        }
+        
+        Node parse() {
+            Node node = expression();
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+            return node;
+        }
+        
+        private Node expression() {
+            Node node = term();
+            while (true) {
+                if (accept('+')) {
+                    node = binary('+', node, term());
+                } else if (accept('-')) {
+                    node = binary('-', node, term());
+                } else {
+                    return node;
+                }
+            }
+        }
+        
+        private Node term() {
+            Node node = unary();
+            while (true) {
+                if (accept('*')) {
+                    node = binary('*', node, unary());
+                } else if (accept('/')) {
+                    node = binary('/', node, unary());
+                } else if (accept('%')) {
+                    node = binary('%', node, unary());
+                } else {
+                    return node;
+                }
+            }
+        }
+        
+        private Node unary() {
+            if (accept('-')) {
+                Node operand = unary();
+                if (operand.isConstant()) {
+                    return new Constant(-operand.eval(null));
+                }
+                return new Negate(operand);
+            }
+            if (accept('+')) {
+                return unary();
+            }
+            return power();
+        }
+        
+        private Node power() {
+            Node base = primary();
+            if (accept('^')) {
+                return binary('^', base, unary());
+            }
+            return base;
+        }
+        
+        private Node primary() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = text.charAt(pos);
+            if (accept('(')) {
+                Node inner = expression();
+                expect(')');
+                return inner;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return number();
+            }
+            if (Character.isLetter(c) || c == '_') {
+                return name();
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+        
+        private Node number() {
+            int start = pos;
+            while (pos < text.length() &&
+                   (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                int mark = pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                if (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                        pos++;
+                    }
+                } else {
+                    pos = mark;
+                }
+            }
+            String literal = text.substring(start, pos);
+            try {
+                return new Constant(Double.parseDouble(literal));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number '" + literal + "'");
+            }
+        }
+        
+        private Node name() {
+            int start = pos;
+            while (pos < text.length() &&
+                   (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            String name = text.substring(start, pos);
+            
+            if (accept('(')) {
+                int id = functionId(name);
+                if (id < 0) {
+                    throw error("Unknown function '" + name + "'");
+                }
+                Node argument = expression();
+                expect(')');
+                return fold(new Function(id, argument, engine), argument.isConstant());
+            }
+            
+            if (name.equals("pi")) {
+                return new Constant(Math.PI);
+            }
+            if (name.equals("e")) {
+                return new Constant(Math.E);
+            }
+            
+            int slot = variables.indexOf(name);
+            if (slot < 0) {
+                slot = variables.size();
+                variables.add(name);
+            }
+            return new Variable(slot);
+        }
+        
+        private Node binary(char op, Node left, Node right) {
+            return fold(new Binary(op, left, right, engine),
+                left.isConstant() && right.isConstant());
+        }
+        
+        /**
+         * Pre-compute constant subtrees; anything that would fail
+         * (e.g. 1/0) is left in place so the error surfaces on evaluation
+         */
+        private Node fold(Node node, boolean constant) {
+            if (!constant) {
+                return node;
+            }
+            try {
+                return new Constant(node.eval(null));
+            } catch (CalculatorException e) {
+                return node;
+            }
+        }
+        
+        private boolean accept(char expected) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(char expected) {
+            if (!accept(expected)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+        
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private InvalidInputException error(String message) {
+            return new InvalidInputException(message + " at position " + pos + " in: " + text);
+        }
+    }
+}
\ No newline at end of file
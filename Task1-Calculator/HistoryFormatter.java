@@ -0,0 +1,150 @@
+import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Formats history lines into a reusable StringBuilder
+ * Produces the same text as String.format("%-30s = %-15.6f [%s]", ...)
+ * without going through java.util.Formatter for ordinary values, and
+ * caches the formatted timestamp for the current second.
+ * Not thread-safe; HistoryManager keeps one instance per thread.
+ */
+final class HistoryFormatter {
+    
+    private static final int OPERATION_WIDTH = 30;
+    private static final int RESULT_WIDTH = 15;
+    private static final double FAST_PATH_LIMIT = 1e6;
+    private static final long SCALE = 1_000_000L;
+    
+    private final DateTimeFormatter timestampFormat;
+    private final ZoneId zone;
+    private final boolean fastPath;
+    private final StringBuilder buffer = new StringBuilder(4096);
+    private Formatter fallback;
+    
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTimestamp;
+    
+    HistoryFormatter(DateTimeFormatter timestampFormat) {
+        this.timestampFormat = timestampFormat;
+        this.zone = ZoneId.systemDefault();
+        // The hand-written path emits '.', so it only applies where %f would too
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        this.fastPath = DecimalFormatSymbols.getInstance(locale).getDecimalSeparator() == '.';
+    }
+    
+    /**
+     * The shared buffer, emptied
+     */
+    StringBuilder begin() {
+        buffer.setLength(0);
+        return buffer;
+    }
+    
+    /**
+     * Append one entry as "operation = result [timestamp]"
+     */
+    void appendEntry(StringBuilder out, String operation, double result, long epochMillis) {
+        appendEntry(out, operation, result, timestamp(epochMillis));
+    }
+    
+    void appendEntry(StringBuilder out, String operation, double result, String timestamp) {
+        int start = out.length();
+        out.append(operation);
+        pad(out, start + OPERATION_WIDTH);
+        
+        out.append(" = ");
+        start = out.length();
+        appendFixed6(out, result);
+        pad(out, start + RESULT_WIDTH);
+        
+        out.append(" [").append(timestamp).append(']');
+    }
+    
+    /**
+     * Formatted timestamp; only re-formatted when the second changes
+     */
+    String timestamp(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000L);
+        if (second != cachedSecond) {
+            cachedTimestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone)
+                .format(timestampFormat);
+            cachedSecond = second;
+        }
+        return cachedTimestamp;
+    }
+    
+    /**
+     * Same digits as %.6f; values that are large or sit on a rounding tie
+     * are handed to java.util.Formatter so the output never differs
+     */
+    void appendFixed6(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if (fastPath && magnitude < FAST_PATH_LIMIT) {
+            double scaled = magnitude * SCALE;
+            double whole = Math.floor(scaled);
+            double fraction = scaled - whole;
+            if (Math.abs(fraction - 0.5) > 0.01) {
+                long units = (long) whole + (fraction > 0.5 ? 1 : 0);
+                if (value < 0 || (value == 0 && 1 / value < 0)) {
+                    out.append('-');
+                }
+                out.append(units / SCALE).append('.');
+                long decimals = units % SCALE;
+                for (long digit = SCALE / 10; digit > decimals && digit > 1; digit /= 10) {
+                    out.append('0');
+                }
+                out.append(decimals);
+                return;
+            }
+        }
+        
+        if (fallback == null || fallback.out() != out) {
+            fallback = new Formatter(out);
+        }
+        fallback.format("%.6f", value);
+    }
+    
+    /**
+     * Same text as Double.toString; values in [1e-3, 1e7) with at most three
+     * decimals (what people type) are written without it
+     */
+    static void appendDouble(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude >= 1e-3 && magnitude < 1e7) {
+            long scale = 1;
+            for (int decimals = 0; decimals <= 3; decimals++, scale *= 10) {
+                double units = Math.rint(magnitude * scale);
+                if (units / scale != magnitude) {
+                    continue;
+                }
+                if (value < 0) {
+                    out.append('-');
+                }
+                long digits = (long) units;
+                out.append(digits / scale).append('.');
+                if (decimals == 0) {
+                    out.append('0');
+                    return;
+                }
+                long fraction = digits % scale;
+                for (long digit = scale / 10; digit > fraction && digit > 1; digit /= 10) {
+                    out.append('0');
+                }
+                out.append(fraction);
+                return;
+            }
+        }
+        out.append(value);
+    }
+    
+    private static void pad(StringBuilder out, int width) {
+        while (out.length() < width) {
+            out.append(' ');
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Secondary indexes over HistoryManager sequence numbers
+ *   - one posting list per OperationType (sequence numbers, ascending)
+ *   - a result-ordered tree of (result, sequence) pairs
+ * Time order needs no index: sequence numbers are assigned in timestamp
+ * order, so time windows are found by binary search on the ring itself.
+ * Not thread-safe; HistoryManager guards it with its own lock.
+ */
+final class HistoryIndex {
+    
+    private static final Comparator<ResultKey> RESULT_ORDER =
+        Comparator.<ResultKey>comparingDouble(key -> key.result).thenComparingLong(key -> key.seq);
+    
+    private final PostingList[] postings;
+    private final TreeSet<ResultKey> byResult;
+    long lastMillis = Long.MIN_VALUE;
+    
+    HistoryIndex() {
+        OperationType[] types = OperationType.values();
+        this.postings = new PostingList[types.length];
+        for (int i = 0; i < types.length; i++) {
+            postings[i] = new PostingList();
+        }
+        this.byResult = new TreeSet<>(RESULT_ORDER);
+    }
+    
+    void add(long seq, OperationType type, double result) {
+        postings[type.ordinal()].add(seq);
+        byResult.add(new ResultKey(result, seq));
+    }
+    
+    /**
+     * Drop an evicted entry; entries already dropped by clear() are ignored
+     */
+    void remove(long seq, OperationType type, double result) {
+        postings[type.ordinal()].removeFirstIf(seq);
+        byResult.remove(new ResultKey(result, seq));
+    }
+    
+    void clear() {
+        for (PostingList list : postings) {
+            list.clear();
+        }
+        byResult.clear();
+    }
+    
+    PostingList postings(OperationType type) {
+        return postings[type.ordinal()];
+    }
+    
+    /**
+     * Sequence numbers with min <= result <= max, in result order
+     */
+    long[] resultRange(double min, double max) {
+        Iterable<ResultKey> range = byResult.subSet(
+            new ResultKey(min, Long.MIN_VALUE), true, new ResultKey(max, Long.MAX_VALUE), true);
+        long[] seqs = new long[16];
+        int count = 0;
+        for (ResultKey key : range) {
+            if (count == seqs.length) {
+                seqs = Arrays.copyOf(seqs, count * 2);
+            }
+            seqs[count++] = key.seq;
+        }
+        return Arrays.copyOf(seqs, count);
+    }
+    
+    private static final class ResultKey {
+        private final double result;
+        private final long seq;
+        
+        ResultKey(double result, long seq) {
+            this.result = result;
+            this.seq = seq;
+        }
+    }
+    
+    /**
+     * Ascending sequence numbers in a growable circular array; appends at
+     * the tail and evictions at the head are both O(1)
+     */
+    static final class PostingList {
+        private long[] seqs = new long[16];
+        private int head;
+        private int size;
+        
+        void add(long seq) {
+            if (size == seqs.length) {
+                long[] grown = new long[seqs.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                seqs = grown;
+                head = 0;
+            }
+            seqs[(head + size) % seqs.length] = seq;
+            size++;
+        }
+        
+        void removeFirstIf(long seq) {
+            if (size > 0 && seqs[head] == seq) {
+                head = (head + 1) % seqs.length;
+                size--;
+            }
+        }
+        
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        long get(int index) {
+            return seqs[(head + index) % seqs.length];
+        }
+        
+        /**
+         * First position whose sequence number is >= seq
+         */
+        int lowerBound(long seq) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid) < seq) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
\ No newline at end of file
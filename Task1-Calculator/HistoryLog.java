@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only binary log of history entries
+ *
+ * Record layout (big-endian):
+ *   int length | long epochMillis | double result | UTF-8 operation | int length
+ * The trailing length lets replay walk backwards from the end of the file,
+ * so restoring the newest N entries only touches the tail of the log.
+ *
+ * Appends go through an in-memory buffer; the buffer is written and the
+ * file forced to disk every syncEvery records (group commit), on flush()
+ * and on close(). syncEvery = 0 leaves fsync to flush()/close().
+ */
+public class HistoryLog implements AutoCloseable {
+    
+    /**
+     * Receives replayed records, oldest first
+     */
+    public interface RecordVisitor {
+        void visit(long epochMillis, double result, String operation);
+    }
+    
+    private static final int OVERHEAD = Integer.BYTES * 2 + Long.BYTES + Double.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_WINDOW = 64 * 1024;
+    private static final int MAX_WINDOW = Integer.MAX_VALUE;
+    
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int syncEvery;
+    private int unsynced;
+    
+    /**
+     * Open (or create) a log file; a torn record left by a crash is dropped
+     */
+    public HistoryLog(Path file, int syncEvery) {
+        if (syncEvery < 0) {
+            throw new InvalidInputException("Sync interval cannot be negative");
+        }
+        this.file = file;
+        this.syncEvery = syncEvery;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.channel = openChannel(file);
+        try {
+            long valid = validLength();
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+            }
+            channel.position(valid);
+        } catch (IOException e) {
+            CalculatorException failure = new CalculatorException(
+                "Cannot open history log " + file + ": " + e.getMessage(), e);
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+            throw failure;
+        }
+    }
+    
+    private static FileChannel openChannel(Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot open history log " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Append one record
+     */
+    public void append(long epochMillis, double result, String operation) {
+        byte[] text = operation.getBytes(StandardCharsets.UTF_8);
+        int length = OVERHEAD + text.length;
+        try {
+            if (length > buffer.remaining()) {
+                drain();
+            }
+            if (length > buffer.capacity()) {
+                ByteBuffer large = ByteBuffer.allocate(length);
+                put(large, length, epochMillis, result, text);
+                large.flip();
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+            } else {
+                put(buffer, length, epochMillis, result, text);
+            }
+            
+            if (syncEvery > 0 && ++unsynced >= syncEvery) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot write history log " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Write buffered records and force them to disk
+     */
+    public void flush() {
+        try {
+            drain();
+            channel.force(false);
+            unsynced = 0;
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot sync history log " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Discard all records
+     */
+    public void clear() {
+        try {
+            buffer.clear();
+            unsynced = 0;
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot clear history log " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Replay the newest maxRecords records (oldest first) by mapping only
+     * the tail of the file; the mapped window doubles until it holds enough
+     */
+    public void replayTail(int maxRecords, RecordVisitor visitor) {
+        if (maxRecords <= 0) {
+            return;
+        }
+        try {
+            drain();
+            long end = channel.size();
+            long window = Math.min(end, Math.min(MAX_WINDOW,
+                Math.max(MIN_WINDOW, (long) maxRecords * 64)));
+            
+            while (true) {
+                long start = end - window;
+                MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, start, window);
+                
+                // Walk backwards collecting record offsets
+                int[] offsets = new int[Math.min(maxRecords, 1024)];
+                int found = 0;
+                int position = (int) window;
+                while (found < maxRecords && position >= OVERHEAD) {
+                    int length = tail.getInt(position - Integer.BYTES);
+                    if (length < OVERHEAD || length > position) {
+                        break;
+                    }
+                    position -= length;
+                    if (found == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, found * 2);
+                    }
+                    offsets[found++] = position;
+                }
+                
+                if (found == maxRecords || start == 0 || window == MAX_WINDOW) {
+                    for (int i = found - 1; i >= 0; i--) {
+                        read(tail, offsets[i], visitor);
+                    }
+                    return;
+                }
+                window = Math.min(end, Math.min(MAX_WINDOW, window * 2));
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot replay history log " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    @Override
+    public void close() {
+        try {
+            try {
+                flush();
+            } finally {
+                // Even if the last records cannot be written
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot close history log " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private static void put(ByteBuffer target, int length, long epochMillis,
+                            double result, byte[] text) {
+        target.putInt(length);
+        target.putLong(epochMillis);
+        target.putDouble(result);
+        target.put(text);
+        target.putInt(length);
+    }
+    
+    private static void read(ByteBuffer source, int offset, RecordVisitor visitor) {
+        int length = source.getInt(offset);
+        long epochMillis = source.getLong(offset + Integer.BYTES);
+        double result = source.getDouble(offset + Integer.BYTES + Long.BYTES);
+        byte[] text = new byte[length - OVERHEAD];
+        source.get(offset + Integer.BYTES + Long.BYTES + Double.BYTES, text);
+        visitor.visit(epochMillis, result, new String(text, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Length of the prefix made of complete records; checks the last record
+     * first and only scans forward when the tail looks damaged
+     */
+    private long validLength() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        if (size >= OVERHEAD) {
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(trailer, size - Integer.BYTES);
+            int length = trailer.getInt(0);
+            if (length >= OVERHEAD && length <= size) {
+                ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+                channel.read(header, size - length);
+                if (header.getInt(0) == length) {
+                    return size;
+                }
+            }
+        }
+        
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        while (position + OVERHEAD <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            if (length < OVERHEAD || position + length > size) {
+                break;
+            }
+            header.clear();
+            channel.read(header, position + length - Integer.BYTES);
+            if (header.getInt(0) != length) {
+                break;
+            }
+            position += length;
+        }
+        return position;
+    }
+}
\ No newline at end of file
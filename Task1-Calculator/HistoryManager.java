@@ -1,104 +1,599 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages calculation history with timestamps
  * Demonstrates encapsulation and data management
+ *
+ * Entries live in a fixed-capacity ring buffer of parallel primitive arrays
+ * (epoch millis, result, operation); once full, each insert overwrites the
+ * oldest entry in O(1). Operation strings are interned so repeated
+ * operations share one copy.
+ *
+ * Safe for concurrent use without locks: writers claim a sequence number
+ * with one atomic increment and publish their slot through a per-slot stamp
+ * (a seqlock); readers validate the stamp around each read, so every entry
+ * they return was fully written and not yet overwritten.
  */
 public class HistoryManager {
     
-    private final List<HistoryEntry> history;
-    private final DateTimeFormatter formatter;
     private static final int MAX_HISTORY_SIZE = 100;
+    private static final long BUSY = Long.MIN_VALUE;
+    private static final int RENDER_CHUNK = 64 * 1024;
+    private static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    private final DateTimeFormatter formatter;
+    private final int capacity;
+    
+    // Ring buffer: the entry with sequence number s is stored at s % capacity
+    // and is valid while stamps[slot] == s
+    private final long[] timestamps;
+    private final double[] results;
+    private final String[] operations;
+    private final long[] stamps;
+    private final AtomicLong sequence;
+    private volatile long clearedBefore;
+    
+    // Interned operation strings; only a de-duplication cache, cleared when large
+    private final ConcurrentHashMap<String, String> internTable;
+    
+    // Optional secondary indexes; when present, writers are serialised on it
+    private final HistoryIndex index;
+    private final OperationType[] types;
+    
+    // Per-thread line formatter with its own reusable buffer
+    private final ThreadLocal<HistoryFormatter> lineFormatter;
+    
+    // Optional durable log; null for an in-memory history
+    private volatile HistoryLog log;
     
     public HistoryManager() {
-        this.history = new ArrayList<>();
+        this(MAX_HISTORY_SIZE);
+    }
+    
+    /**
+     * Create a history that keeps at most the given number of entries
+     */
+    public HistoryManager(int capacity) {
+        this(capacity, false);
+    }
+    
+    /**
+     * Create a history that, when indexed is true, also maintains indexes by
+     * operation type and result for the find* queries. Indexed writers take
+     * a short lock; an unindexed history stays lock-free.
+     */
+    public HistoryManager(int capacity, boolean indexed) {
+        if (capacity <= 0) {
+            throw new InvalidInputException("History capacity must be positive");
+        }
         this.formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.results = new double[capacity];
+        this.operations = new String[capacity];
+        this.stamps = new long[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            // "Lap -1 finished", so the first writer of each slot never waits
+            stamps[slot] = slot - (long) capacity;
+        }
+        this.sequence = new AtomicLong();
+        this.internTable = new ConcurrentHashMap<>();
+        this.lineFormatter = ThreadLocal.withInitial(() -> new HistoryFormatter(formatter));
+        this.index = indexed ? new HistoryIndex() : null;
+        this.types = indexed ? new OperationType[capacity] : null;
+    }
+    
+    /**
+     * Open a history backed by an append-only log file
+     * The newest capacity entries are restored from the tail of the log;
+     * the log is forced to disk every syncEvery entries (0 = only on close)
+     */
+    public static HistoryManager open(Path file, int capacity, int syncEvery) {
+        return open(file, capacity, syncEvery, false);
+    }
+    
+    /**
+     * Open a log-backed history, optionally with query indexes
+     */
+    public static HistoryManager open(Path file, int capacity, int syncEvery, boolean indexed) {
+        HistoryManager manager = new HistoryManager(capacity, indexed);
+        HistoryLog log = new HistoryLog(file, syncEvery);
+        try {
+            log.replayTail(capacity, manager::store);
+        } catch (RuntimeException | Error e) {
+            // Do not leak the open channel
+            try {
+                log.close();
+            } catch (RuntimeException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        manager.log = log;
+        return manager;
     }
     
     /**
      * Add a new calculation entry to history
      */
     public void addEntry(String operation, double result) {
+        addEntry(null, operation, result);
+    }
+    
+    /**
+     * Add an entry with an explicit operation type (null = infer from text)
+     */
+    public void addEntry(OperationType type, String operation, double result) {
         if (operation == null || operation.trim().isEmpty()) {
             throw new InvalidInputException("Operation cannot be null or empty");
         }
         
-        HistoryEntry entry = new HistoryEntry(operation, result);
-        history.add(entry);
+        long now = System.currentTimeMillis();
+        HistoryLog current = log;
+        if (current != null) {
+            // File I/O is inherently serial; in-memory writers never take this lock
+            synchronized (current) {
+                current.append(now, result, operation);
+            }
+        }
+        store(now, result, operation, type);
+    }
+    
+    /**
+     * Write any buffered log records to disk
+     */
+    public void flush() {
+        HistoryLog current = log;
+        if (current != null) {
+            synchronized (current) {
+                current.flush();
+            }
+        }
+    }
+    
+    /**
+     * Flush and close the backing log, if any
+     */
+    public void close() {
+        HistoryLog current = log;
+        if (current != null) {
+            log = null;
+            synchronized (current) {
+                current.close();
+            }
+        }
+    }
+    
+    private void store(long epochMillis, double result, String operation) {
+        store(epochMillis, result, operation, null);
+    }
+    
+    private void store(long epochMillis, double result, String operation, OperationType type) {
+        if (index == null) {
+            publish(epochMillis, result, operation);
+            return;
+        }
+        
+        OperationType resolved = type != null ? type : OperationType.classify(operation);
+        synchronized (index) {
+            // Keep timestamps non-decreasing so time windows can be binary searched
+            long millis = Math.max(epochMillis, index.lastMillis);
+            index.lastMillis = millis;
+            
+            long seq = sequence.get();
+            int slot = (int) (seq % capacity);
+            if (seq >= capacity) {
+                index.remove(seq - capacity, types[slot], results[slot]);
+            }
+            publish(millis, result, operation);
+            types[slot] = resolved;
+            index.add(seq, resolved, result);
+        }
+    }
+    
+    private void publish(long epochMillis, double result, String operation) {
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq % capacity);
         
-        // Maintain max history size
-        if (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
+        // Only waits if a writer from the previous lap is still mid-write
+        long previous = seq - capacity;
+        while ((long) STAMPS.getAcquire(stamps, slot) != previous) {
+            Thread.onSpinWait();
         }
+        
+        STAMPS.setVolatile(stamps, slot, BUSY);
+        // A volatile store does not keep later plain stores after it; without
+        // this a reader could see the new payload under the old stamp
+        VarHandle.storeStoreFence();
+        timestamps[slot] = epochMillis;
+        results[slot] = result;
+        operations[slot] = intern(operation);
+        STAMPS.setRelease(stamps, slot, seq);
     }
     
     /**
      * Display all calculation history
+     * The whole block is built in one buffer and written with a single print
      */
     public void displayHistory() {
-        if (history.isEmpty()) {
+        long end = sequence.get();
+        long first = firstVisible(end);
+        int count = (int) (end - first);
+        if (count == 0) {
             System.out.println("\n── Calculation History ──");
             System.out.println("No calculations in history yet.");
             return;
         }
         
-        System.out.println("\n╔════════════════════════════════════════════════════════════════╗");
-        System.out.println("║                    CALCULATION HISTORY                         ║");
-        System.out.println("╠════════════════════════════════════════════════════════════════╣");
+        HistoryFormatter lines = lineFormatter.get();
+        StringBuilder out = lines.begin();
+        String newline = System.lineSeparator();
+        out.append(newline).append("╔════════════════════════════════════════════════════════════════╗").append(newline);
+        out.append("║                    CALCULATION HISTORY                         ║").append(newline);
+        out.append("╠════════════════════════════════════════════════════════════════╣").append(newline);
         
-        for (int i = history.size() - 1; i >= Math.max(0, history.size() - 20); i--) {
-            HistoryEntry entry = history.get(i);
-            System.out.printf("║ [%d] %s%n", i + 1, entry.toString());
+        EntryView view = new EntryView();
+        for (int i = count - 1; i >= Math.max(0, count - 20); i--) {
+            if (readInto(first + i, view)) {
+                out.append("║ [").append(i + 1).append("] ");
+                lines.appendEntry(out, view.operation, view.result, view.epochMillis);
+                out.append(newline);
+            }
         }
         
-        System.out.println("╚════════════════════════════════════════════════════════════════╝");
+        out.append("╚════════════════════════════════════════════════════════════════╝").append(newline);
         
-        if (history.size() > 20) {
-            System.out.printf("(Showing last 20 of %d entries)%n", history.size());
+        if (count > 20) {
+            out.append("(Showing last 20 of ").append(count).append(" entries)").append(newline);
         } else {
-            System.out.printf("(Total entries: %d)%n", history.size());
+            out.append("(Total entries: ").append(count).append(')').append(newline);
+        }
+        System.out.print(out);
+        System.out.flush();
+    }
+    
+    /**
+     * Write entries [offset, offset + limit) (0 = oldest) to out, one
+     * "[n] operation = result [timestamp]" line each, through a reused
+     * buffer that is handed to out in large blocks
+     * Returns the number of entries written
+     */
+    public int render(int offset, int limit, Appendable out) {
+        if (offset < 0 || limit < 0) {
+            throw new InvalidInputException("Offset and limit cannot be negative");
         }
+        
+        long end = sequence.get();
+        long first = firstVisible(end);
+        long from = first + offset;
+        long to = Math.min(end, from + limit);
+        
+        HistoryFormatter lines = lineFormatter.get();
+        StringBuilder buffer = lines.begin();
+        String newline = System.lineSeparator();
+        EntryView view = new EntryView();
+        int written = 0;
+        try {
+            for (long seq = from; seq < to; seq++) {
+                if (!readInto(seq, view)) {
+                    continue;
+                }
+                buffer.append('[').append(seq - first + 1).append("] ");
+                lines.appendEntry(buffer, view.operation, view.result, view.epochMillis);
+                buffer.append(newline);
+                written++;
+                
+                if (buffer.length() >= RENDER_CHUNK) {
+                    out.append(buffer);
+                    buffer.setLength(0);
+                }
+            }
+            out.append(buffer);
+            buffer.setLength(0);
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot render history: " + e.getMessage(), e);
+        }
+        return written;
     }
     
     /**
      * Clear all history
      */
     public void clearHistory() {
-        history.clear();
+        HistoryLog current = log;
+        if (current != null) {
+            synchronized (current) {
+                current.clear();
+            }
+        }
+        if (index != null) {
+            synchronized (index) {
+                clearedBefore = sequence.get();
+                index.clear();
+            }
+        } else {
+            clearedBefore = sequence.get();
+        }
+        internTable.clear();
     }
     
     /**
      * Get history size
      */
     public int size() {
-        return history.size();
+        long end = sequence.get();
+        return (int) (end - firstVisible(end));
     }
     
     /**
-     * Get specific history entry
+     * Get maximum number of entries kept
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Get specific history entry (0 = oldest currently kept)
      */
     public HistoryEntry getEntry(int index) {
-        if (index < 0 || index >= history.size()) {
+        long end = sequence.get();
+        long first = firstVisible(end);
+        if (index < 0 || index >= end - first) {
             throw new InvalidInputException("Invalid history index: " + index);
         }
-        return history.get(index);
+        HistoryEntry entry = read(first + index);
+        if (entry == null) {
+            throw new InvalidInputException("History entry " + index + " was overwritten");
+        }
+        return entry;
+    }
+    
+    /**
+     * Consistent copy of the current history, oldest first
+     * Entries overwritten by concurrent writers while copying are skipped
+     */
+    public List<HistoryEntry> snapshot() {
+        long end = sequence.get();
+        long first = firstVisible(end);
+        List<HistoryEntry> entries = new ArrayList<>((int) (end - first));
+        for (long seq = first; seq < end; seq++) {
+            HistoryEntry entry = read(seq);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+    
+    // ============ INDEXED QUERIES ============
+    
+    /**
+     * All entries of one operation type, oldest first
+     */
+    public List<HistoryEntry> findByOperation(OperationType type) {
+        return findByOperation(type, LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+    
+    /**
+     * Entries of one operation type with from <= timestamp < to, oldest first
+     * O(log n) to locate the window plus the size of the result
+     */
+    public List<HistoryEntry> findByOperation(OperationType type, LocalDateTime from, LocalDateTime to) {
+        requireIndex();
+        if (type == null) {
+            throw new InvalidInputException("Operation type cannot be null");
+        }
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        
+        synchronized (index) {
+            HistoryIndex.PostingList postings = index.postings(type);
+            long first = firstVisible(sequence.get());
+            int low = postings.lowerBound(first);
+            int high = postings.size();
+            
+            // Timestamps grow with sequence numbers, so binary search by time
+            int start = low;
+            int stop = high;
+            while (start < stop) {
+                int mid = (start + stop) >>> 1;
+                if (timestampOf(postings.get(mid)) < fromMillis) {
+                    start = mid + 1;
+                } else {
+                    stop = mid;
+                }
+            }
+            int end = start;
+            stop = high;
+            while (end < stop) {
+                int mid = (end + stop) >>> 1;
+                if (timestampOf(postings.get(mid)) < toMillis) {
+                    end = mid + 1;
+                } else {
+                    stop = mid;
+                }
+            }
+            
+            List<HistoryEntry> entries = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                addIfPresent(entries, postings.get(i));
+            }
+            return entries;
+        }
+    }
+    
+    /**
+     * Entries with from <= timestamp < to, oldest first
+     */
+    public List<HistoryEntry> findByTime(LocalDateTime from, LocalDateTime to) {
+        requireIndex();
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        
+        synchronized (index) {
+            long end = sequence.get();
+            long first = firstVisible(end);
+            long start = lowerBoundByTime(first, end, fromMillis);
+            long stop = lowerBoundByTime(start, end, toMillis);
+            
+            List<HistoryEntry> entries = new ArrayList<>((int) (stop - start));
+            for (long seq = start; seq < stop; seq++) {
+                addIfPresent(entries, seq);
+            }
+            return entries;
+        }
+    }
+    
+    /**
+     * Entries with min <= result <= max, in ascending result order
+     */
+    public List<HistoryEntry> findByResult(double min, double max) {
+        requireIndex();
+        synchronized (index) {
+            long first = firstVisible(sequence.get());
+            long[] seqs = index.resultRange(min, max);
+            List<HistoryEntry> entries = new ArrayList<>(seqs.length);
+            for (long seq : seqs) {
+                if (seq >= first) {
+                    addIfPresent(entries, seq);
+                }
+            }
+            return entries;
+        }
+    }
+    
+    private void requireIndex() {
+        if (index == null) {
+            throw new InvalidInputException(
+                "History queries need an indexed history: new HistoryManager(capacity, true)");
+        }
+    }
+    
+    private long lowerBoundByTime(long low, long high, long millis) {
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestampOf(mid) < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private long timestampOf(long seq) {
+        return timestamps[(int) (seq % capacity)];
+    }
+    
+    private void addIfPresent(List<HistoryEntry> entries, long seq) {
+        HistoryEntry entry = read(seq);
+        if (entry != null) {
+            entries.add(entry);
+        }
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        if (time == null) {
+            throw new InvalidInputException("Time bounds cannot be null");
+        }
+        if (time.equals(LocalDateTime.MIN)) {
+            return Long.MIN_VALUE;
+        }
+        if (time.equals(LocalDateTime.MAX)) {
+            return Long.MAX_VALUE;
+        }
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    private long firstVisible(long end) {
+        return Math.max(clearedBefore, Math.max(0, end - capacity));
+    }
+    
+    private HistoryEntry read(long seq) {
+        EntryView view = new EntryView();
+        if (!readInto(seq, view)) {
+            return null;
+        }
+        LocalDateTime timestamp = LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(view.epochMillis), ZoneId.systemDefault());
+        return new HistoryEntry(view.operation, view.result, timestamp);
+    }
+    
+    /**
+     * Seqlock read of one entry; waits for an in-flight write to the slot,
+     * returns false if the entry has already been overwritten
+     */
+    private boolean readInto(long seq, EntryView view) {
+        int slot = (int) (seq % capacity);
+        int spins = 0;
+        while (true) {
+            long before = (long) STAMPS.getAcquire(stamps, slot);
+            if (before == seq) {
+                view.epochMillis = timestamps[slot];
+                view.result = results[slot];
+                view.operation = operations[slot];
+                VarHandle.loadLoadFence();
+                if ((long) STAMPS.getVolatile(stamps, slot) == seq) {
+                    return true;
+                }
+            } else if (before != BUSY && before > seq) {
+                return false;
+            }
+            
+            // Not yet published (or being rewritten): wait for the writer
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+    
+    private String intern(String operation) {
+        String shared = internTable.putIfAbsent(operation, operation);
+        if (shared != null) {
+            return shared;
+        }
+        if (internTable.size() > 4 * capacity) {
+            internTable.clear();
+        }
+        return operation;
+    }
+    
+    /**
+     * Mutable holder for one entry read out of the ring buffer
+     */
+    private static final class EntryView {
+        private long epochMillis;
+        private double result;
+        private String operation;
     }
     
     /**
      * Inner class representing a single history entry
+     * Created on demand from the ring buffer
      */
-    private class HistoryEntry {
+    public class HistoryEntry {
         private final String operation;
         private final double result;
         private final LocalDateTime timestamp;
         
-        public HistoryEntry(String operation, double result) {
+        public HistoryEntry(String operation, double result, LocalDateTime timestamp) {
             this.operation = operation;
             this.result = result;
-            this.timestamp = LocalDateTime.now();
+            this.timestamp = timestamp;
         }
         
         public String getOperation() {
@@ -115,8 +610,9 @@ public class HistoryManager {
         
         @Override
         public String toString() {
-            return String.format("%-30s = %-15.6f [%s]", 
-                operation, result, timestamp.format(formatter));
+            StringBuilder out = new StringBuilder(64);
+            lineFormatter.get().appendEntry(out, operation, result, timestamp.format(formatter));
+            return out.toString();
         }
     }
 }
\ No newline at end of file
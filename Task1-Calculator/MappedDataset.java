@@ -0,0 +1,233 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Read-only view of a binary file of little-endian doubles
+ * The file is memory-mapped in 1 GiB segments, so datasets larger than the
+ * heap (and larger than 2^31 values) can be summarized without copying
+ */
+public class MappedDataset {
+    
+    /**
+     * Most values toCalculator() will copy to the heap (1 GiB of doubles)
+     */
+    public static final int ORDER_STATISTICS_LIMIT = 1 << 27;
+    
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_VALUES = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_VALUES - 1;
+    
+    private final Path file;
+    private final DoubleBuffer[] segments;
+    private final long size;
+    
+    private MappedDataset(Path file, DoubleBuffer[] segments, long size) {
+        this.file = file;
+        this.segments = segments;
+        this.size = size;
+    }
+    
+    /**
+     * Map a binary file of little-endian doubles
+     */
+    public static MappedDataset open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes == 0 || bytes % Double.BYTES != 0) {
+                throw new InvalidInputException(
+                    "Dataset must be a non-empty sequence of 8-byte doubles: " + file);
+            }
+            
+            long size = bytes / Double.BYTES;
+            int count = (int) ((size + SEGMENT_VALUES - 1) >>> SEGMENT_SHIFT);
+            DoubleBuffer[] segments = new DoubleBuffer[count];
+            for (int s = 0; s < count; s++) {
+                long first = s * SEGMENT_VALUES;
+                long values = Math.min(SEGMENT_VALUES, size - first);
+                segments[s] = channel
+                    .map(FileChannel.MapMode.READ_ONLY, first * Double.BYTES, values * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+            }
+            return new MappedDataset(file, segments, size);
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot map dataset " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Stream one column of a text/CSV file through a StreamingStatistics
+     * accumulator; only the current line is held in memory. Blank lines are
+     * skipped, and so is a first line whose column is not numeric (a
+     * header); any other row without a number in the column is an error.
+     */
+    public static StreamingStatistics summarizeColumn(Path file, int column) {
+        if (column < 0) {
+            throw new InvalidInputException("Column index cannot be negative");
+        }
+        
+        StreamingStatistics stats = new StreamingStatistics();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String field = field(line, column);
+                double value;
+                try {
+                    value = Double.parseDouble(field);
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) {
+                        continue;
+                    }
+                    throw new InvalidInputException("Line " + lineNumber + " of " + file
+                        + ": column " + column + " is not a number: \"" + field + "\"");
+                }
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw new InvalidInputException("Line " + lineNumber + " of " + file
+                        + ": column " + column + " is not a finite number: \"" + field + "\"");
+                }
+                stats.accept(value);
+            }
+        } catch (IOException e) {
+            throw new CalculatorException("Cannot read dataset " + file + ": " + e.getMessage(), e);
+        }
+        
+        if (stats.getCount() == 0) {
+            throw new InvalidInputException("No numeric values in column " + column + " of " + file);
+        }
+        return stats;
+    }
+    
+    /**
+     * Number of values in the file
+     */
+    public long size() {
+        return size;
+    }
+    
+    /**
+     * Value at a given index
+     */
+    public double get(long index) {
+        if (index < 0 || index >= size) {
+            throw new InvalidInputException("Invalid dataset index: " + index);
+        }
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+    
+    /**
+     * Count, sum, mean, variance, min and max computed directly from the
+     * mapped pages in a single pass
+     */
+    public StreamingStatistics summary() {
+        StreamingStatistics stats = new StreamingStatistics();
+        for (DoubleBuffer segment : segments) {
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++) {
+                stats.accept(segment.get(i));
+            }
+        }
+        return stats;
+    }
+    
+    /**
+     * summary() split across the fork-join pool when parallel is true
+     */
+    public StreamingStatistics summary(boolean parallel) {
+        if (!parallel) {
+            return summary();
+        }
+        StreamingStatistics stats = new StreamingStatistics();
+        for (DoubleBuffer segment : segments) {
+            stats.combine(ForkJoinPool.commonPool().invoke(
+                new SummaryTask(segment, 0, segment.limit())));
+        }
+        return stats;
+    }
+    
+    /**
+     * Load the values into a StatisticalCalculator for order statistics
+     * (median, percentiles, mode), which need a heap array to work on
+     * The calculator works on that one copy in place; files over
+     * ORDER_STATISTICS_LIMIT values are refused
+     */
+    public StatisticalCalculator toCalculator(boolean parallel) {
+        if (size > ORDER_STATISTICS_LIMIT) {
+            throw new InvalidInputException("Dataset has " + size + " values; at most "
+                + ORDER_STATISTICS_LIMIT + " can be loaded for order statistics");
+        }
+        
+        double[] values = new double[(int) size];
+        int offset = 0;
+        for (DoubleBuffer segment : segments) {
+            int length = segment.limit();
+            segment.duplicate().get(values, offset, length);
+            offset += length;
+        }
+        return StatisticalCalculator.wrap(values, parallel);
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    private static String field(String line, int column) {
+        int start = 0;
+        for (int c = 0; c < column; c++) {
+            int comma = line.indexOf(',', start);
+            if (comma < 0) {
+                return "";
+            }
+            start = comma + 1;
+        }
+        int end = line.indexOf(',', start);
+        return line.substring(start, end < 0 ? line.length() : end).trim();
+    }
+    
+    private static final class SummaryTask extends RecursiveTask<StreamingStatistics> {
+        private static final long serialVersionUID = 1L;
+        
+        private final DoubleBuffer segment;
+        private final int from;
+        private final int to;
+        
+        SummaryTask(DoubleBuffer segment, int from, int to) {
+            this.segment = segment;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected StreamingStatistics compute() {
+            if (to - from <= ParallelStatistics.CHUNK_SIZE) {
+                // Absolute reads leave the shared buffer's position alone
+                StreamingStatistics result = new StreamingStatistics();
+                for (int i = from; i < to; i++) {
+                    result.accept(segment.get(i));
+                }
+                return result;
+            }
+            
+            int mid = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(segment, from, mid);
+            left.fork();
+            StreamingStatistics right = new SummaryTask(segment, mid, to).compute();
+            StreamingStatistics result = left.join();
+            result.combine(right);
+            return result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/**
+ * Kind of calculation recorded in the history
+ * Used to index history entries by operation
+ */
+public enum OperationType {
+    ADDITION,
+    SUBTRACTION,
+    MULTIPLICATION,
+    DIVISION,
+    POWER,
+    SQUARE_ROOT,
+    MODULO,
+    ABSOLUTE,
+    SINE,
+    COSINE,
+    TANGENT,
+    LOGARITHM,
+    NATURAL_LOG,
+    FACTORIAL,
+    STATISTICS,
+    OTHER;
+    
+    /**
+     * Infer the type from the operation text CalculatorApp records,
+     * e.g. "10.0 ÷ 3.0", "sin(30.0°)", "5!" or "Statistical Analysis"
+     */
+    public static OperationType classify(String operation) {
+        if (operation.startsWith("sin(")) {
+            return SINE;
+        }
+        if (operation.startsWith("cos(")) {
+            return COSINE;
+        }
+        if (operation.startsWith("tan(")) {
+            return TANGENT;
+        }
+        if (operation.startsWith("log")) {
+            return LOGARITHM;
+        }
+        if (operation.startsWith("ln(")) {
+            return NATURAL_LOG;
+        }
+        if (operation.startsWith("√")) {
+            return SQUARE_ROOT;
+        }
+        if (operation.startsWith("|") && operation.endsWith("|")) {
+            return ABSOLUTE;
+        }
+        if (operation.endsWith("!")) {
+            return FACTORIAL;
+        }
+        if (operation.startsWith("Statistical")) {
+            return STATISTICS;
+        }
+        if (operation.contains(" ÷ ")) {
+            return DIVISION;
+        }
+        if (operation.contains(" × ")) {
+            return MULTIPLICATION;
+        }
+        if (operation.contains(" + ")) {
+            return ADDITION;
+        }
+        if (operation.contains(" - ")) {
+            return SUBTRACTION;
+        }
+        if (operation.contains(" ^ ")) {
+            return POWER;
+        }
+        if (operation.contains(" mod ")) {
+            return MODULO;
+        }
+        return OTHER;
+    }
+}
\ No newline at end of file
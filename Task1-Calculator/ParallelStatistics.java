@@ -0,0 +1,257 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join kernels used by StatisticalCalculator in parallel mode
+ * Work is split into chunks of at least CHUNK_SIZE values; smaller inputs
+ * run on the calling thread
+ */
+final class ParallelStatistics {
+    
+    static final int CHUNK_SIZE = 1 << 15;
+    private static final int BUCKETS = 4096;
+    private static final double INVERSE_BUCKETS = 1.0 / BUCKETS;
+    // Candidates few enough to gather and sort
+    private static final int GATHER_LIMIT = 1 << 14;
+    
+    private ParallelStatistics() {
+    }
+    
+    /**
+     * Moments and extrema of data, computed per chunk and merged with the
+     * numerically stable pairwise update of StreamingStatistics.combine
+     */
+    static StreamingStatistics summarize(double[] data) {
+        return ForkJoinPool.commonPool().invoke(new SummaryTask(data, 0, data.length));
+    }
+    
+    /**
+     * k-th smallest value of data without modifying or copying it
+     * Each parallel pass histograms the values still in the range holding
+     * rank k and narrows the range to one bucket, until few enough values
+     * are left to gather and sort
+     */
+    static double select(double[] data, int k, double min, double max) {
+        int leaf = leafSize(data.length);
+        double low = min;
+        double high = max;
+        int rank = k;
+        int count = data.length;
+        while (low < high && count > GATHER_LIMIT) {
+            Histogram histogram = ForkJoinPool.commonPool().invoke(
+                new HistogramTask(data, 0, data.length, leaf, low, high));
+            
+            int bucket = 0;
+            while (rank >= histogram.counts[bucket]) {
+                rank -= histogram.counts[bucket];
+                bucket++;
+            }
+            if (histogram.counts[bucket] == count) {
+                double bucketLow = histogram.min[bucket];
+                double bucketHigh = histogram.max[bucket];
+                if (bucketLow == low && bucketHigh == high) {
+                    break; // The range cannot be split any further
+                }
+            }
+            low = histogram.min[bucket];
+            high = histogram.max[bucket];
+            count = histogram.counts[bucket];
+        }
+        if (low == high) {
+            return low;
+        }
+        
+        double[] candidates = ForkJoinPool.commonPool().invoke(
+            new GatherTask(data, 0, data.length, leaf, low, high, count));
+        Arrays.sort(candidates);
+        return candidates[rank];
+    }
+    
+    /**
+     * Chunk size giving each pool thread a few chunks, so a pass allocates a
+     * handful of histograms however large data is
+     */
+    private static int leafSize(int length) {
+        int chunks = 4 * ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(CHUNK_SIZE, (length + chunks - 1) / chunks);
+    }
+    
+    /**
+     * Value counts per bucket over [low, high], with the smallest and
+     * largest value seen in each bucket
+     */
+    private static final class Histogram {
+        
+        final int[] counts = new int[BUCKETS];
+        final double[] min = new double[BUCKETS];
+        final double[] max = new double[BUCKETS];
+        
+        Histogram() {
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+        
+        void add(Histogram other) {
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] += other.counts[b];
+                min[b] = Math.min(min[b], other.min[b]);
+                max[b] = Math.max(max[b], other.max[b]);
+            }
+        }
+    }
+    
+    /**
+     * Maps values in [low, high] to buckets; bucketOf is non-decreasing in
+     * the value, so every bucket is one contiguous run of values
+     */
+    private static final class Buckets {
+        
+        private final double lowScaled;
+        private final double scale;
+        
+        Buckets(double low, double high) {
+            // Scaled down first so high - low cannot overflow to Infinity
+            this.lowScaled = low * INVERSE_BUCKETS;
+            this.scale = BUCKETS / (high * INVERSE_BUCKETS - lowScaled);
+        }
+        
+        int bucketOf(double value) {
+            // A NaN (0 * Infinity, when the range is subnormal) converts to 0
+            int bucket = (int) ((value * INVERSE_BUCKETS - lowScaled) * scale);
+            if (bucket < 0) {
+                return 0;
+            }
+            return bucket >= BUCKETS ? BUCKETS - 1 : bucket;
+        }
+    }
+    
+    private static final class SummaryTask extends RecursiveTask<StreamingStatistics> {
+        private static final long serialVersionUID = 1L;
+        
+        private final double[] data;
+        private final int from;
+        private final int to;
+        
+        SummaryTask(double[] data, int from, int to) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected StreamingStatistics compute() {
+            if (to - from <= CHUNK_SIZE) {
+                StreamingStatistics result = new StreamingStatistics();
+                for (int i = from; i < to; i++) {
+                    result.accept(data[i]);
+                }
+                return result;
+            }
+            
+            int mid = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(data, from, mid);
+            left.fork();
+            StreamingStatistics right = new SummaryTask(data, mid, to).compute();
+            StreamingStatistics result = left.join();
+            result.combine(right);
+            return result;
+        }
+    }
+    
+    private static final class HistogramTask extends RecursiveTask<Histogram> {
+        private static final long serialVersionUID = 1L;
+        
+        private final double[] data;
+        private final int from;
+        private final int to;
+        private final int leaf;
+        private final double low;
+        private final double high;
+        
+        HistogramTask(double[] data, int from, int to, int leaf, double low, double high) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.low = low;
+            this.high = high;
+        }
+        
+        @Override
+        protected Histogram compute() {
+            if (to - from <= leaf) {
+                Buckets buckets = new Buckets(low, high);
+                Histogram histogram = new Histogram();
+                for (int i = from; i < to; i++) {
+                    double value = data[i];
+                    if (value < low || value > high) {
+                        continue;
+                    }
+                    int b = buckets.bucketOf(value);
+                    histogram.counts[b]++;
+                    if (value < histogram.min[b]) {
+                        histogram.min[b] = value;
+                    }
+                    if (value > histogram.max[b]) {
+                        histogram.max[b] = value;
+                    }
+                }
+                return histogram;
+            }
+            
+            int mid = (from + to) >>> 1;
+            HistogramTask left = new HistogramTask(data, from, mid, leaf, low, high);
+            left.fork();
+            Histogram histogram = new HistogramTask(data, mid, to, leaf, low, high).compute();
+            histogram.add(left.join());
+            return histogram;
+        }
+    }
+    
+    private static final class GatherTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+        
+        private final double[] data;
+        private final int from;
+        private final int to;
+        private final int leaf;
+        private final double low;
+        private final double high;
+        private final int expected;
+        
+        GatherTask(double[] data, int from, int to, int leaf, double low, double high,
+                   int expected) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.low = low;
+            this.high = high;
+            this.expected = expected;
+        }
+        
+        @Override
+        protected double[] compute() {
+            if (to - from <= leaf) {
+                double[] found = new double[Math.min(expected, to - from)];
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if (data[i] >= low && data[i] <= high) {
+                        found[count++] = data[i];
+                    }
+                }
+                return count == found.length ? found : Arrays.copyOf(found, count);
+            }
+            
+            int mid = (from + to) >>> 1;
+            GatherTask left = new GatherTask(data, from, mid, leaf, low, high, expected);
+            left.fork();
+            double[] right = new GatherTask(data, mid, to, leaf, low, high, expected).compute();
+            double[] leftFound = left.join();
+            double[] merged = Arrays.copyOf(leftFound, leftFound.length + right.length);
+            System.arraycopy(right, 0, merged, leftFound.length, right.length);
+            return merged;
+        }
+    }
+}
\ No newline at end of file
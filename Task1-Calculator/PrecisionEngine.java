@@ -0,0 +1,201 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Arbitrary-precision counterpart of CalculatorEngine
+ * Decimal results are rounded to the configured MathContext;
+ * integer results (factorial, integer powers) are exact.
+ */
+public class PrecisionEngine {
+    
+    /**
+     * Factorials up to this n are cached once computed
+     */
+    public static final int FACTORIAL_CACHE_LIMIT = 10_000;
+    
+    // Ranges at most this long are multiplied directly as longs
+    private static final int SPLIT_THRESHOLD = 16;
+    
+    // Shared by all engines; BigInteger is immutable, so entries are safe to
+    // publish through the array. Filled on demand (10000! is about 15 KB).
+    private static final AtomicReferenceArray<BigInteger> FACTORIALS =
+        new AtomicReferenceArray<>(FACTORIAL_CACHE_LIMIT + 1);
+    
+    static {
+        FACTORIALS.set(0, BigInteger.ONE);
+    }
+    
+    private final MathContext mathContext;
+    
+    public PrecisionEngine() {
+        this(MathContext.DECIMAL128);
+    }
+    
+    /**
+     * MathContext.UNLIMITED keeps every result exact; operations whose exact
+     * result has no finite decimal expansion then fail
+     */
+    public PrecisionEngine(MathContext mathContext) {
+        if (mathContext == null) {
+            throw new InvalidInputException("MathContext cannot be null");
+        }
+        this.mathContext = mathContext;
+    }
+    
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+    
+    // Basic Operations
+    public BigDecimal add(BigDecimal a, BigDecimal b) {
+        return require(a, "First operand").add(require(b, "Second operand"), mathContext);
+    }
+    
+    public BigDecimal subtract(BigDecimal a, BigDecimal b) {
+        return require(a, "First operand").subtract(require(b, "Second operand"), mathContext);
+    }
+    
+    public BigDecimal multiply(BigDecimal a, BigDecimal b) {
+        return require(a, "First operand").multiply(require(b, "Second operand"), mathContext);
+    }
+    
+    public BigDecimal divide(BigDecimal a, BigDecimal b) throws DivisionByZeroException {
+        require(a, "Dividend");
+        require(b, "Divisor");
+        if (b.signum() == 0) {
+            throw new DivisionByZeroException("Cannot divide by zero");
+        }
+        try {
+            return a.divide(b, mathContext);
+        } catch (ArithmeticException e) {
+            throw new InvalidOperationException(
+                "Quotient has no exact decimal representation; use a bounded MathContext");
+        }
+    }
+    
+    public BigDecimal squareRoot(BigDecimal number) {
+        require(number, "Number");
+        if (number.signum() < 0) {
+            throw new InvalidOperationException(
+                "Cannot calculate square root of negative number");
+        }
+        try {
+            return number.sqrt(mathContext);
+        } catch (ArithmeticException e) {
+            throw new InvalidOperationException(
+                "Square root has no exact decimal representation; use a bounded MathContext");
+        }
+    }
+    
+    /**
+     * base^exponent by repeated squaring; intermediate products carry
+     * extra guard digits so only the final result is rounded to the context
+     */
+    public BigDecimal power(BigDecimal base, int exponent) {
+        require(base, "Base");
+        if (exponent == 0) {
+            return BigDecimal.ONE;
+        }
+        if (base.signum() == 0 && exponent < 0) {
+            throw new DivisionByZeroException("Cannot raise zero to a negative power");
+        }
+        
+        long remaining = Math.abs((long) exponent);
+        MathContext working = mathContext;
+        if (mathContext.getPrecision() > 0) {
+            int guardDigits = Long.toString(remaining).length() + 2;
+            working = new MathContext(mathContext.getPrecision() + guardDigits,
+                mathContext.getRoundingMode());
+        }
+        
+        BigDecimal result = BigDecimal.ONE;
+        BigDecimal square = base;
+        while (true) {
+            if ((remaining & 1) != 0) {
+                result = result.multiply(square, working);
+            }
+            remaining >>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            square = square.multiply(square, working);
+        }
+        
+        if (exponent < 0) {
+            return divide(BigDecimal.ONE, result);
+        }
+        return result.round(mathContext);
+    }
+    
+    /**
+     * Exact integer power; BigInteger.pow already works by repeated squaring
+     */
+    public BigInteger power(BigInteger base, int exponent) {
+        require(base, "Base");
+        if (exponent < 0) {
+            throw new InvalidOperationException(
+                "Integer power requires a non-negative exponent");
+        }
+        return base.pow(exponent);
+    }
+    
+    /**
+     * Exact n!, computed by binary splitting and extended from the nearest
+     * cached smaller factorial; results up to FACTORIAL_CACHE_LIMIT are cached
+     */
+    public BigInteger factorial(int n) {
+        if (n < 0) {
+            throw new InvalidOperationException(
+                "Factorial is only defined for non-negative integers");
+        }
+        
+        if (n <= FACTORIAL_CACHE_LIMIT) {
+            BigInteger cached = FACTORIALS.get(n);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        int from = Math.min(n, FACTORIAL_CACHE_LIMIT);
+        BigInteger start = FACTORIALS.get(from);
+        while (start == null) {
+            start = FACTORIALS.get(--from);
+        }
+        
+        BigInteger result = start.multiply(product(from, n));
+        if (n <= FACTORIAL_CACHE_LIMIT) {
+            FACTORIALS.set(n, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Product of the integers in (low, high], split in halves so the
+     * multiplications stay balanced
+     */
+    private static BigInteger product(int low, int high) {
+        if (high - low <= SPLIT_THRESHOLD) {
+            BigInteger result = BigInteger.ONE;
+            long partial = 1;
+            for (long i = low + 1; i <= high; i++) {
+                if (partial > Long.MAX_VALUE / i) {
+                    result = result.multiply(BigInteger.valueOf(partial));
+                    partial = 1;
+                }
+                partial *= i;
+            }
+            return result.multiply(BigInteger.valueOf(partial));
+        }
+        int middle = (low + high) >>> 1;
+        return product(low, middle).multiply(product(middle, high));
+    }
+    
+    private static <T> T require(T value, String name) {
+        if (value == null) {
+            throw new InvalidInputException(name + " cannot be null");
+        }
+        return value;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+/**
+ * Bounded cache of double results keyed on (operation, raw bits of a, raw bits of b)
+ *
+ * Entries live in fixed slot arrays; an open-addressing table (linear
+ * probing, at most half full) maps key hashes to slots. When all slots are
+ * used, CLOCK picks the victim: the hand clears reference bits until it
+ * finds an entry not read since its last pass. Removal from the table uses
+ * backward-shift deletion, so no tombstones build up.
+ *
+ * NaN marks a miss, so only non-NaN results can be stored.
+ * All methods synchronize on the cache.
+ */
+final class ResultCache {
+    
+    private final int capacity;
+    private final int mask;
+    private final int[] table;          // slot + 1, 0 = empty
+    
+    private final byte[] operations;
+    private final long[] firstBits;
+    private final long[] secondBits;
+    private final int[] hashes;
+    private final double[] values;
+    private final boolean[] referenced;
+    
+    private int size;
+    private int hand;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    ResultCache(int capacity) {
+        if (capacity < 1 || capacity > (1 << 29)) {
+            throw new InvalidInputException("Cache capacity must be between 1 and " + (1 << 29));
+        }
+        this.capacity = capacity;
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.mask = tableSize - 1;
+        this.table = new int[tableSize];
+        this.operations = new byte[capacity];
+        this.firstBits = new long[capacity];
+        this.secondBits = new long[capacity];
+        this.hashes = new int[capacity];
+        this.values = new double[capacity];
+        this.referenced = new boolean[capacity];
+    }
+    
+    /**
+     * Cached result, or NaN on a miss
+     */
+    synchronized double get(byte operation, double a, double b) {
+        long first = Double.doubleToRawLongBits(a);
+        long second = Double.doubleToRawLongBits(b);
+        int position = hash(operation, first, second) & mask;
+        while (true) {
+            int entry = table[position];
+            if (entry == 0) {
+                misses++;
+                return Double.NaN;
+            }
+            int slot = entry - 1;
+            if (operations[slot] == operation && firstBits[slot] == first
+                    && secondBits[slot] == second) {
+                referenced[slot] = true;
+                hits++;
+                return values[slot];
+            }
+            position = (position + 1) & mask;
+        }
+    }
+    
+    synchronized void put(byte operation, double a, double b, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        long first = Double.doubleToRawLongBits(a);
+        long second = Double.doubleToRawLongBits(b);
+        int hash = hash(operation, first, second);
+        int position = hash & mask;
+        while (table[position] != 0) {
+            int slot = table[position] - 1;
+            if (operations[slot] == operation && firstBits[slot] == first
+                    && secondBits[slot] == second) {
+                values[slot] = value;
+                return;
+            }
+            position = (position + 1) & mask;
+        }
+        
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            slot = evict();
+            // The backward shift may have moved entries into our probe path
+            position = hash & mask;
+            while (table[position] != 0) {
+                position = (position + 1) & mask;
+            }
+        }
+        
+        operations[slot] = operation;
+        firstBits[slot] = first;
+        secondBits[slot] = second;
+        hashes[slot] = hash;
+        values[slot] = value;
+        referenced[slot] = false;
+        table[position] = slot + 1;
+    }
+    
+    synchronized void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(referenced, false);
+        size = 0;
+        hand = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+    
+    synchronized int size() {
+        return size;
+    }
+    
+    int capacity() {
+        return capacity;
+    }
+    
+    synchronized long hits() {
+        return hits;
+    }
+    
+    synchronized long misses() {
+        return misses;
+    }
+    
+    synchronized long evictions() {
+        return evictions;
+    }
+    
+    /**
+     * Advance the CLOCK hand to an unreferenced slot and unlink it
+     */
+    private int evict() {
+        while (referenced[hand]) {
+            referenced[hand] = false;
+            hand = (hand + 1) % capacity;
+        }
+        int victim = hand;
+        hand = (hand + 1) % capacity;
+        
+        int hole = hashes[victim] & mask;
+        while (table[hole] != victim + 1) {
+            hole = (hole + 1) & mask;
+        }
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = hashes[table[next] - 1] & mask;
+            // Move the entry back unless its home lies between the hole and it
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+        
+        evictions++;
+        return victim;
+    }
+    
+    private static int hash(byte operation, long first, long second) {
+        long h = first * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(second * 0xC2B2AE3D27D4EB4FL, 31);
+        h ^= operation * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,522 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Headless calculator: reads one operation per line and writes one result
+ * per line, e.g.
+ *
+ *   add 2 3              -> 5.000000
+ *   divide 10 3          -> 3.333333
+ *   sqrt 2               -> 1.414214
+ *   stats 1 2 2 3        -> count=4 mean=2.000000 median=2.000000 ...
+ *   stats data.bin       -> the same for a file of little-endian doubles
+ *   eval 2 * (3 + 4)     -> 14.000000
+ *
+ * Blank lines and lines starting with '#' are skipped. A failing line
+ * prints "error (line N): message" and processing continues.
+ *
+ * Arithmetic lines are handled without allocating: input is tokenized in
+ * place in a byte buffer, numbers are parsed straight from the bytes
+ * (exact fast path, falling back to Double.parseDouble), the engine throws
+ * shared preallocated exceptions, and results are formatted into a reused
+ * buffer that is written out in 64 KiB blocks. Nothing is recorded in the
+ * history.
+ */
+public class ScriptRunner {
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_TOKENS = 8;
+    
+    // Commands packed into a long (up to 8 ASCII bytes) for cheap comparison
+    private static final long ADD = pack("add");
+    private static final long SUBTRACT = pack("subtract");
+    private static final long SUB = pack("sub");
+    private static final long MULTIPLY = pack("multiply");
+    private static final long MUL = pack("mul");
+    private static final long DIVIDE = pack("divide");
+    private static final long DIV = pack("div");
+    private static final long POWER = pack("power");
+    private static final long POW = pack("pow");
+    private static final long MOD = pack("mod");
+    private static final long SQRT = pack("sqrt");
+    private static final long ABS = pack("abs");
+    private static final long SIN = pack("sin");
+    private static final long COS = pack("cos");
+    private static final long TAN = pack("tan");
+    private static final long LOG = pack("log");
+    private static final long LN = pack("ln");
+    private static final long FACT = pack("fact");
+    private static final long STATS = pack("stats");
+    private static final long EVAL = pack("eval");
+    
+    private static final InvalidInputException UNKNOWN_COMMAND =
+        new InvalidInputException("Unknown command", false);
+    private static final InvalidInputException WRONG_ARGUMENTS =
+        new InvalidInputException("Wrong number of arguments", false);
+    private static final InvalidInputException INVALID_NUMBER =
+        new InvalidInputException("Invalid number", false);
+    private static final InvalidInputException LINE_TOO_LONG =
+        new InvalidInputException("Line too long", false);
+    private static final InvalidInputException NOT_WHOLE_NUMBER =
+        new InvalidInputException("Factorial needs a whole number", false);
+    private static final InvalidInputException FACTORIAL_OUT_OF_RANGE =
+        new InvalidInputException("Factorial argument out of range", false);
+    
+    // Powers of ten that are exact doubles, for the fast number path
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_LINE = 1 << 24;
+    
+    private final CalculatorEngine engine;
+    private final HistoryFormatter formatter;
+    private final StringBuilder text = new StringBuilder(64);
+    
+    private byte[] input = new byte[BUFFER_SIZE];
+    private final byte[] output = new byte[BUFFER_SIZE];
+    private int outputLength;
+    private OutputStream out;
+    
+    // Token boundaries of the current line
+    private final int[] tokenStart = new int[MAX_TOKENS];
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+    private int tokenCount;
+    private int lineEnd;
+    private double[] values = new double[16];
+    
+    private long operations;
+    private long errors;
+    
+    public ScriptRunner() {
+        this(new CalculatorEngine(true));
+    }
+    
+    public ScriptRunner(CalculatorEngine engine) {
+        if (engine == null) {
+            throw new InvalidInputException("Engine cannot be null");
+        }
+        this.engine = engine;
+        // Only used for number formatting; its timestamp format is irrelevant
+        this.formatter = new HistoryFormatter(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+    
+    /**
+     * Process every line of in, writing results to out (flushed at the end)
+     * Returns the number of operations executed, including failed ones
+     */
+    public long run(InputStream in, OutputStream out) throws IOException {
+        this.out = out;
+        long lineNumber = 0;
+        int length = 0;
+        int position = 0;
+        boolean eof = false;
+        
+        while (true) {
+            int newline = indexOf((byte) '\n', position, length);
+            if (newline < 0 && !eof) {
+                // Move the partial line to the front and read more
+                if (position > 0) {
+                    System.arraycopy(input, position, input, 0, length - position);
+                    length -= position;
+                    position = 0;
+                }
+                if (length == input.length) {
+                    if (input.length >= MAX_LINE) {
+                        throw LINE_TOO_LONG;
+                    }
+                    input = Arrays.copyOf(input, input.length * 2);
+                }
+                int read = in.read(input, length, input.length - length);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    length += read;
+                }
+                continue;
+            }
+            if (newline < 0 && position == length) {
+                break;
+            }
+            
+            int end = newline < 0 ? length : newline;
+            lineNumber++;
+            processLine(position, end, lineNumber);
+            position = newline < 0 ? length : newline + 1;
+        }
+        
+        flushOutput();
+        out.flush();
+        return operations;
+    }
+    
+    public long getOperationCount() {
+        return operations;
+    }
+    
+    public long getErrorCount() {
+        return errors;
+    }
+    
+    private void processLine(int start, int end, long lineNumber) throws IOException {
+        tokenize(start, end);
+        if (tokenCount == 0 || input[tokenStart[0]] == '#') {
+            return;
+        }
+        
+        operations++;
+        try {
+            long command = pack(tokenStart[0], tokenEnd[0]);
+            if (command == STATS) {
+                writeStatistics();
+            } else if (command == EVAL) {
+                writeResult(evaluateExpression());
+            } else {
+                writeResult(calculate(command));
+            }
+        } catch (CalculatorException | IllegalArgumentException e) {
+            // IllegalArgumentException covers malformed file paths
+            errors++;
+            writeError(lineNumber, e.getMessage());
+        }
+    }
+    
+    private double calculate(long command) {
+        if (command == ADD) {
+            return engine.add(number(1, 2), number(2, 2));
+        }
+        if (command == SUBTRACT || command == SUB) {
+            return engine.subtract(number(1, 2), number(2, 2));
+        }
+        if (command == MULTIPLY || command == MUL) {
+            return engine.multiply(number(1, 2), number(2, 2));
+        }
+        if (command == DIVIDE || command == DIV) {
+            return engine.divide(number(1, 2), number(2, 2));
+        }
+        if (command == POWER || command == POW) {
+            return engine.power(number(1, 2), number(2, 2));
+        }
+        if (command == MOD) {
+            return engine.modulo(number(1, 2), number(2, 2));
+        }
+        if (command == SQRT) {
+            return engine.squareRoot(number(1, 1));
+        }
+        if (command == ABS) {
+            return engine.absolute(number(1, 1));
+        }
+        if (command == SIN) {
+            return engine.sine(number(1, 1));
+        }
+        if (command == COS) {
+            return engine.cosine(number(1, 1));
+        }
+        if (command == TAN) {
+            return engine.tangent(number(1, 1));
+        }
+        if (command == LOG) {
+            return engine.logarithm(number(1, 1));
+        }
+        if (command == LN) {
+            return engine.naturalLog(number(1, 1));
+        }
+        if (command == FACT) {
+            return engine.factorial(wholeNumber(1, 1));
+        }
+        throw UNKNOWN_COMMAND;
+    }
+    
+    /**
+     * number() for an operand that must be a whole number in int range,
+     * rather than truncating it
+     */
+    private int wholeNumber(int index, int expected) {
+        double value = number(index, expected);
+        if (value != Math.rint(value)) {
+            throw NOT_WHOLE_NUMBER;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw FACTORIAL_OUT_OF_RANGE;
+        }
+        return (int) value;
+    }
+    
+    /**
+     * "stats <file>" for a binary file, "stats v1 v2 ..." for inline values
+     */
+    private void writeStatistics() throws IOException {
+        StatisticalCalculator stats;
+        int arguments = tokenCount - 1;
+        if (arguments == 1 && !looksNumeric(tokenStart[1])) {
+            String file = new String(input, tokenStart[1], tokenEnd[1] - tokenStart[1],
+                StandardCharsets.UTF_8);
+            stats = StatisticalCalculator.fromBinaryFile(Path.of(file), true);
+        } else {
+            // Inline values may exceed MAX_TOKENS, so rescan the whole line
+            int count = 0;
+            int position = tokenEnd[0];
+            while (true) {
+                while (position < lineEnd && isSpace(input[position])) {
+                    position++;
+                }
+                if (position == lineEnd) {
+                    break;
+                }
+                int start = position;
+                while (position < lineEnd && !isSpace(input[position])) {
+                    position++;
+                }
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = parseNumber(start, position);
+            }
+            if (count == 0) {
+                throw WRONG_ARGUMENTS;
+            }
+            stats = new StatisticalCalculator(Arrays.copyOf(values, count));
+        }
+        
+        text.setLength(0);
+        text.append("count=").append(stats.getSize());
+        text.append(" mean=");
+        formatter.appendFixed6(text, stats.mean());
+        text.append(" median=");
+        formatter.appendFixed6(text, stats.median());
+        text.append(" mode=");
+        formatter.appendFixed6(text, stats.mode());
+        text.append(" stddev=");
+        formatter.appendFixed6(text, stats.standardDeviation());
+        text.append(" min=");
+        formatter.appendFixed6(text, stats.min());
+        text.append(" max=");
+        formatter.appendFixed6(text, stats.max());
+        writeText();
+    }
+    
+    private double evaluateExpression() {
+        if (tokenCount < 2) {
+            throw WRONG_ARGUMENTS;
+        }
+        String source = new String(input, tokenStart[1], lineEnd - tokenStart[1],
+            StandardCharsets.UTF_8);
+        return Expression.compile(source, engine).evaluate();
+    }
+    
+    // ============ TOKENIZER ============
+    
+    /**
+     * Record whitespace-separated token offsets; a trailing '\r' is ignored
+     */
+    private void tokenize(int start, int end) {
+        if (end > start && input[end - 1] == '\r') {
+            end--;
+        }
+        lineEnd = end;
+        tokenCount = 0;
+        int position = start;
+        while (tokenCount < MAX_TOKENS) {
+            while (position < end && isSpace(input[position])) {
+                position++;
+            }
+            if (position == end) {
+                return;
+            }
+            tokenStart[tokenCount] = position;
+            while (position < end && !isSpace(input[position])) {
+                position++;
+            }
+            tokenEnd[tokenCount++] = position;
+        }
+    }
+    
+    /**
+     * Operand at index, after checking the line has exactly expected operands
+     */
+    private double number(int index, int expected) {
+        if (tokenCount != expected + 1) {
+            throw WRONG_ARGUMENTS;
+        }
+        return parseNumber(tokenStart[index], tokenEnd[index]);
+    }
+    
+    /**
+     * Parse a decimal number in place; up to 15 significant digits with a
+     * decimal exponent of at most 22 is one exact multiply or divide, so the
+     * result is correctly rounded. Anything else goes to Double.parseDouble.
+     */
+    private double parseNumber(int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (input[position] == '-' || input[position] == '+')) {
+            negative = input[position] == '-';
+            position++;
+        }
+        
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; position < end; position++) {
+            byte c = input[position];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    if (seenPoint) {
+                        scale--;
+                    }
+                    continue;
+                }
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (seenPoint) {
+                        scale--;
+                    }
+                } else if (!seenPoint) {
+                    scale++;
+                }
+                digits++;
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        
+        if (position < end && (input[position] == 'e' || input[position] == 'E') && seenDigit) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (input[position] == '-' || input[position] == '+')) {
+                negativeExponent = input[position] == '-';
+                position++;
+            }
+            int exponent = 0;
+            boolean exponentDigit = false;
+            while (position < end && input[position] >= '0' && input[position] <= '9') {
+                exponent = Math.min(exponent * 10 + (input[position] - '0'), 100_000);
+                exponentDigit = true;
+                position++;
+            }
+            if (!exponentDigit) {
+                return parseSlow(start, end);
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        
+        if (position != end || !seenDigit) {
+            return parseSlow(start, end);
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (digits > 15 || scale < -22 || scale > 22) {
+            return parseSlow(start, end);
+        }
+        double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+    
+    private double parseSlow(int start, int end) {
+        try {
+            return Double.parseDouble(
+                new String(input, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw INVALID_NUMBER;
+        }
+    }
+    
+    private boolean looksNumeric(int start) {
+        byte c = input[start];
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+    
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t';
+    }
+    
+    private int indexOf(byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (input[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private long pack(int start, int end) {
+        if (end - start > Long.BYTES) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = start; i < end; i++) {
+            key = (key << 8) | (input[i] & 0xFF);
+        }
+        return key;
+    }
+    
+    private static long pack(String command) {
+        long key = 0;
+        for (int i = 0; i < command.length(); i++) {
+            key = (key << 8) | command.charAt(i);
+        }
+        return key;
+    }
+    
+    // ============ OUTPUT ============
+    
+    private void writeResult(double result) throws IOException {
+        text.setLength(0);
+        formatter.appendFixed6(text, result);
+        writeText();
+    }
+    
+    private void writeError(long lineNumber, String message) throws IOException {
+        text.setLength(0);
+        text.append("error (line ").append(lineNumber).append("): ").append(message);
+        writeText();
+    }
+    
+    /**
+     * Copy the text buffer plus a newline into the output block
+     */
+    private void writeText() throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Rare non-ASCII text (messages, file names): encode properly
+                writeBytes(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            if (outputLength == output.length) {
+                flushOutput();
+            }
+            output[outputLength++] = (byte) c;
+        }
+        if (outputLength == output.length) {
+            flushOutput();
+        }
+        output[outputLength++] = '\n';
+    }
+    
+    private void writeBytes(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            if (outputLength == output.length) {
+                flushOutput();
+            }
+            output[outputLength++] = b;
+        }
+    }
+    
+    private void flushOutput() throws IOException {
+        out.write(output, 0, outputLength);
+        outputLength = 0;
+    }
+}
\ No newline at end of file
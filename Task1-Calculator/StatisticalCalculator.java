@@ -1,6 +1,5 @@
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Statistical calculator for advanced data analysis
@@ -8,10 +7,39 @@ import java.util.Map;
  */
 public class StatisticalCalculator {
     
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    
     private final double[] data;
     private final int size;
+    private final boolean parallel;
+    // Set for wrap(): the array belongs to this calculator, so the order
+    // statistics permute it in place rather than a copy
+    private final boolean owned;
+    
+    // Copy of data (or data itself when owned) reused by the order statistics; selection only permutes
+    // it, so any previous partial ordering is still valid input
+    private double[] scratch;
+    private boolean scratchSorted;
+    
+    // Lazily computed results; the data never changes after construction
+    private StreamingStatistics summary;
+    private double median = Double.NaN;
+    private double[] modes;
     
     public StatisticalCalculator(double[] data) {
+        this(data, false);
+    }
+    
+    /**
+     * Create a calculator that, when parallel is true, computes moments and
+     * order statistics with fork-join tasks for datasets above
+     * ParallelStatistics.CHUNK_SIZE values (smaller datasets stay sequential)
+     */
+    public StatisticalCalculator(double[] data, boolean parallel) {
+        this(data, parallel, true);
+    }
+    
+    private StatisticalCalculator(double[] data, boolean parallel, boolean copy) {
         if (data == null || data.length == 0) {
             throw new InvalidInputException("Data array cannot be null or empty");
         }
@@ -24,33 +52,122 @@ public class StatisticalCalculator {
             }
         }
         
-        this.data = Arrays.copyOf(data, data.length);
+        this.data = copy ? Arrays.copyOf(data, data.length) : data;
         this.size = data.length;
+        this.parallel = parallel;
+        this.owned = !copy;
+    }
+    
+    /**
+     * Load a binary file of little-endian doubles through a memory mapping
+     * For moments only, MappedDataset.summary() avoids the heap copy entirely
+     */
+    public static StatisticalCalculator fromBinaryFile(Path file, boolean parallel) {
+        return MappedDataset.open(file).toCalculator(parallel);
+    }
+    
+    /**
+     * Take ownership of an array the caller will not use again (no defensive
+     * copy, and no scratch copy: order statistics reorder it)
+     */
+    static StatisticalCalculator wrap(double[] data, boolean parallel) {
+        return new StatisticalCalculator(data, parallel, false);
     }
     
     /**
      * Calculate arithmetic mean (average)
      */
     public double mean() {
-        double sum = 0;
-        for (double value : data) {
-            sum += value;
-        }
-        return sum / size;
+        return summarize().mean();
+    }
+    
+    /**
+     * Compute count, sum, mean, variance, min and max in one fused pass
+     * The pass runs once; every later call (and the individual getters)
+     * reuses the cached result. Returns an independent copy.
+     */
+    public StreamingStatistics summary() {
+        StreamingStatistics copy = new StreamingStatistics();
+        copy.combine(summarize());
+        return copy;
     }
     
     /**
      * Calculate median (middle value)
+     * Uses selection on the shared scratch buffer instead of a full sort
      */
     public double median() {
-        double[] sorted = Arrays.copyOf(data, size);
-        Arrays.sort(sorted);
+        if (!Double.isNaN(median)) {
+            return median;
+        }
+        
+        if (useParallel()) {
+            double upper = orderStatistic(size / 2);
+            median = size % 2 == 0 ? (orderStatistic(size / 2 - 1) + upper) / 2.0 : upper;
+            return median;
+        }
+        
+        double[] values = scratch();
+        double upper = select(values, size / 2);
         
         if (size % 2 == 0) {
-            return (sorted[size / 2 - 1] + sorted[size / 2]) / 2.0;
+            double lower = scratchSorted ? values[size / 2 - 1] : maxUpTo(values, size / 2);
+            median = (lower + upper) / 2.0;
         } else {
-            return sorted[size / 2];
+            median = upper;
         }
+        return median;
+    }
+    
+    /**
+     * Calculate the p-th percentile (0-100) with linear interpolation
+     * between closest ranks
+     */
+    public double percentile(double p) {
+        if (Double.isNaN(p) || p < 0 || p > 100) {
+            throw new InvalidInputException("Percentile must be between 0 and 100");
+        }
+        
+        double rank = (size - 1) * (p / 100.0);
+        int lower = (int) Math.floor(rank);
+        double fraction = rank - lower;
+        
+        if (useParallel()) {
+            double low = orderStatistic(lower);
+            if (fraction == 0 || lower + 1 >= size) {
+                return low;
+            }
+            return low + fraction * (orderStatistic(lower + 1) - low);
+        }
+        
+        double[] values = scratch();
+        double low = select(values, lower);
+        if (fraction == 0 || lower + 1 >= size) {
+            return low;
+        }
+        double high = scratchSorted ? values[lower + 1] : minFrom(values, lower + 1);
+        return low + fraction * (high - low);
+    }
+    
+    /**
+     * Calculate several percentiles at once
+     * Sorts the scratch buffer once when enough quantiles are requested that
+     * repeated selection would cost more than a sort
+     */
+    public double[] quantiles(double... percentiles) {
+        if (percentiles == null) {
+            throw new InvalidInputException("Percentiles cannot be null");
+        }
+        
+        if (percentiles.length > log2(size)) {
+            sortedScratch();
+        }
+        
+        double[] results = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            results[i] = percentile(percentiles[i]);
+        }
+        return results;
     }
     
     /**
@@ -58,39 +175,61 @@ public class StatisticalCalculator {
      * Returns the smallest mode if multiple modes exist
      */
     public double mode() {
-        Map<Double, Integer> frequencyMap = new HashMap<>();
-        
-        for (double value : data) {
-            frequencyMap.put(value, frequencyMap.getOrDefault(value, 0) + 1);
+        return computeModes()[0];
+    }
+    
+    /**
+     * Find all modes (every value tied for the highest frequency), ascending
+     * Sorts the shared scratch buffer once and counts runs in a single pass,
+     * so later median/percentile calls read the sorted values directly
+     */
+    public double[] modes() {
+        return computeModes().clone();
+    }
+    
+    private double[] computeModes() {
+        if (modes != null) {
+            return modes;
         }
         
+        double[] sorted = sortedScratch();
+        
+        double[] found = new double[1];
+        int modeCount = 0;
         int maxFrequency = 0;
-        double mode = data[0];
         
-        for (Map.Entry<Double, Integer> entry : frequencyMap.entrySet()) {
-            if (entry.getValue() > maxFrequency || 
-                (entry.getValue() == maxFrequency && entry.getKey() < mode)) {
-                maxFrequency = entry.getValue();
-                mode = entry.getKey();
+        int i = 0;
+        while (i < size) {
+            double value = sorted[i];
+            long bits = Double.doubleToLongBits(value);
+            int runEnd = i + 1;
+            while (runEnd < size && Double.doubleToLongBits(sorted[runEnd]) == bits) {
+                runEnd++;
+            }
+            
+            int frequency = runEnd - i;
+            if (frequency > maxFrequency) {
+                maxFrequency = frequency;
+                modeCount = 0;
+            }
+            if (frequency == maxFrequency) {
+                if (modeCount == found.length) {
+                    found = Arrays.copyOf(found, found.length * 2);
+                }
+                found[modeCount++] = value;
             }
+            i = runEnd;
         }
         
-        return mode;
+        modes = Arrays.copyOf(found, modeCount);
+        return modes;
     }
     
     /**
      * Calculate variance
      */
     public double variance() {
-        double mean = mean();
-        double sumSquaredDiff = 0;
-        
-        for (double value : data) {
-            double diff = value - mean;
-            sumSquaredDiff += diff * diff;
-        }
-        
-        return sumSquaredDiff / size;
+        return summarize().variance();
     }
     
     /**
@@ -104,44 +243,35 @@ public class StatisticalCalculator {
      * Calculate sum of all values
      */
     public double sum() {
-        double sum = 0;
-        for (double value : data) {
-            sum += value;
-        }
-        return sum;
+        return summarize().sum();
     }
     
     /**
      * Find minimum value
      */
     public double min() {
-        double min = data[0];
-        for (int i = 1; i < size; i++) {
-            if (data[i] < min) {
-                min = data[i];
-            }
-        }
-        return min;
+        return summarize().min();
     }
     
     /**
      * Find maximum value
      */
     public double max() {
-        double max = data[0];
-        for (int i = 1; i < size; i++) {
-            if (data[i] > max) {
-                max = data[i];
-            }
-        }
-        return max;
+        return summarize().max();
     }
     
     /**
      * Calculate range (max - min)
      */
     public double range() {
-        return max() - min();
+        return summarize().range();
+    }
+    
+    /**
+     * Whether fork-join parallelism was requested for this calculator
+     */
+    public boolean isParallel() {
+        return parallel;
     }
     
     /**
@@ -150,4 +280,160 @@ public class StatisticalCalculator {
     public int getSize() {
         return size;
     }
+    
+    // ============ CACHING HELPERS ============
+    
+    private StreamingStatistics summarize() {
+        if (summary == null) {
+            if (useParallel()) {
+                summary = ParallelStatistics.summarize(data);
+            } else {
+                StreamingStatistics result = new StreamingStatistics();
+                for (double value : data) {
+                    result.accept(value);
+                }
+                summary = result;
+            }
+        }
+        return summary;
+    }
+    
+    private boolean useParallel() {
+        return parallel && size > ParallelStatistics.CHUNK_SIZE;
+    }
+    
+    /**
+     * k-th smallest value in parallel mode; reads the sorted scratch buffer
+     * if mode() already produced one, otherwise runs a parallel selection
+     */
+    private double orderStatistic(int k) {
+        if (scratchSorted) {
+            return scratch[k];
+        }
+        StreamingStatistics stats = summarize();
+        return ParallelStatistics.select(data, k, stats.min(), stats.max());
+    }
+    
+    // ============ ORDER STATISTICS HELPERS ============
+    
+    private double[] scratch() {
+        if (scratch == null) {
+            if (owned) {
+                // Summed in the original order before it is reordered
+                summarize();
+                scratch = data;
+            } else {
+                scratch = Arrays.copyOf(data, size);
+            }
+        }
+        return scratch;
+    }
+    
+    private double[] sortedScratch() {
+        double[] values = scratch();
+        if (!scratchSorted) {
+            Arrays.sort(values);
+            scratchSorted = true;
+        }
+        return values;
+    }
+    
+    /**
+     * Place the k-th smallest value at index k (introselect: quickselect with
+     * median-of-three pivots, falling back to sorting after too many rounds)
+     */
+    private double select(double[] values, int k) {
+        if (scratchSorted) {
+            return values[k];
+        }
+        
+        int left = 0;
+        int right = values.length - 1;
+        int budget = 2 * (log2(values.length) + 1);
+        
+        while (right - left > INSERTION_SORT_THRESHOLD) {
+            if (budget-- == 0) {
+                Arrays.sort(values, left, right + 1);
+                return values[k];
+            }
+            
+            int pivotIndex = partition(values, left, right, medianOfThree(values, left, right));
+            if (k == pivotIndex) {
+                return values[k];
+            } else if (k < pivotIndex) {
+                right = pivotIndex - 1;
+            } else {
+                left = pivotIndex + 1;
+            }
+        }
+        
+        insertionSort(values, left, right);
+        return values[k];
+    }
+    
+    private int medianOfThree(double[] values, int left, int right) {
+        int mid = (left + right) >>> 1;
+        double a = values[left];
+        double b = values[mid];
+        double c = values[right];
+        if (a < b) {
+            return b < c ? mid : (a < c ? right : left);
+        }
+        return a < c ? left : (b < c ? right : mid);
+    }
+    
+    private int partition(double[] values, int left, int right, int pivotIndex) {
+        double pivot = values[pivotIndex];
+        swap(values, pivotIndex, right);
+        int store = left;
+        for (int i = left; i < right; i++) {
+            if (values[i] < pivot) {
+                swap(values, i, store++);
+            }
+        }
+        swap(values, store, right);
+        return store;
+    }
+    
+    private void insertionSort(double[] values, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= left && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+    
+    private double minFrom(double[] values, int from) {
+        double min = values[from];
+        for (int i = from + 1; i < values.length; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+    
+    private double maxUpTo(double[] values, int to) {
+        double max = values[0];
+        for (int i = 1; i < to; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+    
+    private static void swap(double[] values, int i, int j) {
+        double tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+    
+    private static int log2(int n) {
+        return 31 - Integer.numberOfLeadingZeros(Math.max(n, 1));
+    }
 }
\ No newline at end of file
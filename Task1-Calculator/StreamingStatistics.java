@@ -0,0 +1,169 @@
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+
+/**
+ * Incremental (online) statistics accumulator
+ * Keeps count, mean, variance, sum, min and max in O(1) memory using
+ * Welford updates for the moments and Kahan summation for the sum
+ *
+ * Can be used as a DoubleStream collector:
+ *   stream.collect(StreamingStatistics::new, StreamingStatistics::accept,
+ *                  StreamingStatistics::combine)
+ */
+public class StreamingStatistics implements DoubleConsumer {
+    
+    private long count;
+    private double mean;
+    private double m2;
+    private double sum;
+    private double sumCompensation;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    
+    /**
+     * Collect all values of a stream (parallel streams are merged with combine)
+     */
+    public static StreamingStatistics of(DoubleStream values) {
+        return values.collect(StreamingStatistics::new,
+            StreamingStatistics::accept, StreamingStatistics::combine);
+    }
+    
+    /**
+     * Add a single value
+     */
+    @Override
+    public void accept(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new InvalidInputException(
+                "Data contains invalid number at index " + count);
+        }
+        
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        
+        addToSum(value);
+        
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+    
+    /**
+     * Merge another accumulator into this one (Chan et al. pairwise update)
+     */
+    public void combine(StreamingStatistics other) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            sum = other.sum;
+            sumCompensation = other.sumCompensation;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        
+        addToSum(other.sum);
+        addToSum(-other.sumCompensation);
+        
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+    
+    /**
+     * Number of values seen
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Compensated sum of all values (0 when empty)
+     */
+    public double sum() {
+        return sum - sumCompensation;
+    }
+    
+    /**
+     * Arithmetic mean (average)
+     */
+    public double mean() {
+        requireData();
+        return mean;
+    }
+    
+    /**
+     * Population variance, same definition as StatisticalCalculator
+     */
+    public double variance() {
+        requireData();
+        return m2 / count;
+    }
+    
+    /**
+     * Population standard deviation
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+    
+    /**
+     * Minimum value
+     */
+    public double min() {
+        requireData();
+        return min;
+    }
+    
+    /**
+     * Maximum value
+     */
+    public double max() {
+        requireData();
+        return max;
+    }
+    
+    /**
+     * Range (max - min)
+     */
+    public double range() {
+        requireData();
+        return max - min;
+    }
+    
+    private void addToSum(double value) {
+        double y = value - sumCompensation;
+        double t = sum + y;
+        sumCompensation = (t - sum) - y;
+        sum = t;
+    }
+    
+    private void requireData() {
+        if (count == 0) {
+            throw new InvalidInputException("No data has been accumulated");
+        }
+    }
+    
+    @Override
+    public String toString() {
+        if (count == 0) {
+            return "StreamingStatistics{count=0}";
+        }
+        return String.format("StreamingStatistics{count=%d, mean=%f, stddev=%f, min=%f, max=%f}",
+            count, mean, standardDeviation(), min, max);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+/**
+ * How CalculatorEngine evaluates sine, cosine and tangent of degree arguments
+ */
+public enum TrigMode {
+    /**
+     * Math.toRadians followed by Math.sin/cos/tan (the original behaviour,
+     * and the default)
+     */
+    RADIANS,
+    
+    /**
+     * Exact reduction modulo 360 in degrees, exact results at multiples of
+     * 30° and 45°, library functions on the remaining |angle| <= 45°
+     */
+    EXACT_DEGREES,
+    
+    /**
+     * As EXACT_DEGREES, but the reduced angle is evaluated by cubic Hermite
+     * interpolation in a quarter-degree table; sine and cosine are within
+     * 1e-12 of the true value (tangent within 2e-12 / cos^2)
+     */
+    TABLE
+}
\ No newline at end of file